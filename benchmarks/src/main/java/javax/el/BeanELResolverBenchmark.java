@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.el;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jasper.el.ELContextImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves bean properties across a number of distinct classes. Each class is
+ * a copy of {@link Bean} defined by its own class loader, so that the
+ * per-class property information is exercised as it is by an application
+ * with many bean types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanELResolverBenchmark {
+
+    // A power of two
+    @Param({"1", "16", "256"})
+    private int classes;
+
+    private final BeanELResolver resolver = new BeanELResolver();
+    private ELContext context;
+    private Object[] beans;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new ELContextImpl(resolver);
+        byte[] bytes = readClass(Bean.class);
+        beans = new Object[classes];
+        for (int i = 0; i < classes; i++) {
+            Class<?> clazz = new BeanLoader(Bean.class.getClassLoader()).define(
+                    Bean.class.getName(), bytes);
+            beans[i] = clazz.getConstructor().newInstance();
+        }
+    }
+
+    @Benchmark
+    public Object getValue() {
+        return resolver.getValue(context, nextBean(), "name");
+    }
+
+    @Benchmark
+    public Object getType() {
+        return resolver.getType(context, nextBean(), "name");
+    }
+
+    @Benchmark
+    public void setValue() {
+        resolver.setValue(context, nextBean(), "name", "value");
+    }
+
+    private Object nextBean() {
+        Object bean = beans[next];
+        next = (next + 1) & (classes - 1);
+        return bean;
+    }
+
+    private static byte[] readClass(Class<?> clazz) throws IOException {
+        String name = clazz.getName();
+        InputStream is = clazz.getResourceAsStream(
+                name.substring(name.lastIndexOf('.') + 1) + ".class");
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                os.write(buf, 0, n);
+            }
+            return os.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+
+    public static class Bean {
+        private String name = "name";
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+
+    private static class BeanLoader extends ClassLoader {
+
+        BeanLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.el;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jasper.el.ELContextImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MapELResolver} and {@link ListELResolver} lookups, as for
+ * <code>${map.key}</code> and <code>${list[7]}</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionELResolverBenchmark {
+
+    private final MapELResolver mapResolver = new MapELResolver();
+    private final ListELResolver listResolver = new ListELResolver();
+    private ELContext context;
+    private final Map<String,String> map = new HashMap<String,String>();
+    private final List<String> list = new ArrayList<String>();
+    // Integer literals in expressions are Longs
+    private final Object longIndex = Long.valueOf(7);
+    private final Object stringIndex = "7";
+
+    @Setup
+    public void setUp() {
+        context = new ELContextImpl(new CompositeELResolver());
+        for (int i = 0; i < 16; i++) {
+            map.put("key" + i, "value" + i);
+            list.add("value" + i);
+        }
+    }
+
+    @Benchmark
+    public Object mapGetValue() {
+        return mapResolver.getValue(context, map, "key7");
+    }
+
+    @Benchmark
+    public Object mapGetValueMissing() {
+        return mapResolver.getValue(context, map, "missing");
+    }
+
+    @Benchmark
+    public void mapSetValue() {
+        mapResolver.setValue(context, map, "key7", "value7");
+    }
+
+    @Benchmark
+    public Object listGetValue() {
+        return listResolver.getValue(context, list, longIndex);
+    }
+
+    @Benchmark
+    public Object listGetValueStringIndex() {
+        return listResolver.getValue(context, list, stringIndex);
+    }
+
+    @Benchmark
+    public void listSetValue() {
+        listResolver.setValue(context, list, longIndex, "value7");
+    }
+}
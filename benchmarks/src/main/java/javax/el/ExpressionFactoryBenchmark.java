@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.el;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.jsp.JspFactory;
+
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up the {@link ExpressionFactory}, both through the EL API and through
+ * the JSP application context as JSP pages and tags do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionFactoryBenchmark {
+
+    private TesterJspServlet servlet;
+    private JspFactory jspFactory;
+
+    @Setup
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        jspFactory = servlet.getJspFactory();
+    }
+
+    @Benchmark
+    public ExpressionFactory newInstance() {
+        return ExpressionFactory.newInstance();
+    }
+
+    @Benchmark
+    public ExpressionFactory jspApplicationContext() {
+        return jspFactory.getJspApplicationContext(
+                servlet.getServletContext()).getExpressionFactory();
+    }
+}
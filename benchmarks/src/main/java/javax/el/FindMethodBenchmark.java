@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.el;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves methods with {@link Util#findMethod(Class, String, Class[], Object[])}
+ * as method invocations in expressions do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindMethodBenchmark {
+
+    private final Class<?>[] stringType = new Class<?>[] { String.class };
+    private final Object[] stringArg = new Object[] { "a" };
+    private final Object[] longArg = new Object[] { Long.valueOf(1) };
+    private final Object[] formatArgs = new Object[] { "%s-%s", "a", "b" };
+
+    @Benchmark
+    public Object declaredTypes() {
+        return Util.findMethod(String.class, "indexOf", stringType, stringArg);
+    }
+
+    @Benchmark
+    public Object overloaded() {
+        // StringBuilder.append() has many overloads
+        return Util.findMethod(StringBuilder.class, "append", null, stringArg);
+    }
+
+    @Benchmark
+    public Object coerced() {
+        // Expressions pass whole numbers as Longs
+        return Util.findMethod(String.class, "substring", null, longArg);
+    }
+
+    @Benchmark
+    public Object varArgs() {
+        return Util.findMethod(String.class, "format", null, formatArgs);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.servlet.jsp.el;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.el.ELContext;
+import javax.el.ELResolver;
+import javax.servlet.http.Cookie;
+import javax.servlet.jsp.PageContext;
+
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves implicit objects and their properties through the resolver of a
+ * page's ELContext, as for <code>${requestScope.name}</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImplicitObjectELResolverBenchmark {
+
+    private TesterJspServlet servlet;
+    private PageContext pageContext;
+    private ELContext context;
+    private ELResolver resolver;
+
+    @Setup
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        TesterRequest request = new TesterRequest();
+        request.setAttribute("name", "value");
+        request.addParameter("id", "42");
+        request.addHeader("Accept", "text/html");
+        request.addHeader("Accept", "application/xhtml+xml");
+        request.addCookie(new Cookie("JSESSIONID", "0123456789ABCDEF"));
+        pageContext = servlet.getPageContext(request, new TesterResponse());
+        pageContext.setAttribute("pageName", "value");
+        context = pageContext.getELContext();
+        resolver = context.getELResolver();
+    }
+
+    @TearDown
+    public void tearDown() {
+        servlet.releasePageContext(pageContext);
+    }
+
+    @Benchmark
+    public Object pageScope() {
+        return getValue("pageScope", "pageName");
+    }
+
+    @Benchmark
+    public Object requestScope() {
+        return getValue("requestScope", "name");
+    }
+
+    @Benchmark
+    public Object sessionScope() {
+        // There is no session
+        return getValue("sessionScope", "name");
+    }
+
+    @Benchmark
+    public Object applicationScope() {
+        return getValue("applicationScope", "name");
+    }
+
+    @Benchmark
+    public Object param() {
+        return getValue("param", "id");
+    }
+
+    @Benchmark
+    public Object header() {
+        return getValue("header", "Accept");
+    }
+
+    @Benchmark
+    public Object headerValues() {
+        return getValue("headerValues", "Accept");
+    }
+
+    @Benchmark
+    public Object cookie() {
+        return getValue("cookie", "JSESSIONID");
+    }
+
+    @Benchmark
+    public Object pageContext() {
+        return getValue("pageContext", "request");
+    }
+
+    @Benchmark
+    public Object scopedAttribute() {
+        // Not an implicit object, so it is found by searching the scopes
+        return resolver.getValue(context, null, "name");
+    }
+
+    private Object getValue(String implicitObject, String property) {
+        Object base = resolver.getValue(context, null, implicitObject);
+        return resolver.getValue(context, base, property);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.jsp.PageContext;
+import javax.servlet.jsp.el.ELException;
+
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates expressions the way generated code does for EL in template text
+ * and in attributes of tags that are not EL aware.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProprietaryEvaluateBenchmark {
+
+    private TesterJspServlet servlet;
+    private PageContext pageContext;
+
+    @Setup
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        TesterRequest request = new TesterRequest();
+        request.setAttribute("person", new Person("Alice", new Address(new City("Paris"))));
+        pageContext = servlet.getPageContext(request, new TesterResponse());
+    }
+
+    @TearDown
+    public void tearDown() {
+        servlet.releasePageContext(pageContext);
+    }
+
+    @Benchmark
+    public Object simple() throws ELException {
+        return PageContextImpl.proprietaryEvaluate("${person.name}", String.class,
+                pageContext, null, false);
+    }
+
+    @Benchmark
+    public Object nested() throws ELException {
+        return PageContextImpl.proprietaryEvaluate("${person.address.city.name}",
+                String.class, pageContext, null, false);
+    }
+
+    @Benchmark
+    public Object missing() throws ELException {
+        // Searches every scope
+        return PageContextImpl.proprietaryEvaluate("${nobody.name}", String.class,
+                pageContext, null, false);
+    }
+
+
+    public static class Person {
+        private final String name;
+        private final Address address;
+
+        public Person(String name, Address address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+    }
+
+
+    public static class Address {
+        private final City city;
+
+        public Address(City city) {
+            this.city = city;
+        }
+
+        public City getCity() {
+            return city;
+        }
+    }
+
+
+    public static class City {
+        private final String name;
+
+        public City(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.JspWriter;
+import javax.servlet.jsp.PageContext;
+import javax.servlet.jsp.tagext.Tag;
+import javax.servlet.jsp.tagext.TagSupport;
+
+import org.apache.tomcat.InstanceManager;
+import org.apache.tomcat.unittest.TesterInstanceManager;
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A <code>&lt;c:if&gt;</code> as generated for a pooled classic tag handler,
+ * compared with the code the If tag plugin inlines in its place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagPluginBenchmark {
+
+    private static final String BODY = "<p>Hello</p>";
+
+    private TesterJspServlet servlet;
+    private PageContext pageContext;
+    private JspWriter out;
+    private InstanceManager instanceManager;
+    private TagHandlerPool pool;
+    private boolean test = true;
+
+    @Setup
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        servlet.getServletContext().setAttribute(
+                InstanceManager.class.getName(), new TesterInstanceManager());
+        instanceManager = InstanceManagerFactory.getInstanceManager(
+                servlet.getServletConfig());
+        pool = TagHandlerPool.getTagHandlerPool(servlet.getServletConfig());
+        pageContext = servlet.getPageContext(new TesterRequest(), new TesterResponse());
+        out = pageContext.getOut();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.release();
+        servlet.releasePageContext(pageContext);
+    }
+
+    @Benchmark
+    public boolean pooled() throws Exception {
+        IfTag ifTag = (IfTag) pool.get(IfTag.class);
+        boolean ifTagReused = false;
+        try {
+            ifTag.setPageContext(pageContext);
+            ifTag.setParent(null);
+            ifTag.setTest(test);
+            int evalDoAfterBody = ifTag.doStartTag();
+            if (evalDoAfterBody != Tag.SKIP_BODY) {
+                out.write(BODY);
+            }
+            if (ifTag.doEndTag() == Tag.SKIP_PAGE) {
+                return true;
+            }
+            pool.reuse(ifTag);
+            ifTagReused = true;
+        } finally {
+            JspRuntimeLibrary.releaseTag(ifTag, instanceManager, ifTagReused);
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean inlined() throws Exception {
+        boolean cond = test;
+        if (cond) {
+            out.write(BODY);
+        }
+        return false;
+    }
+
+
+    /**
+     * The essentials of the JSTL &lt;c:if&gt; handler.
+     */
+    public static class IfTag extends TagSupport {
+
+        private static final long serialVersionUID = 1L;
+
+        private boolean test;
+
+        public void setTest(boolean test) {
+            this.test = test;
+        }
+
+        @Override
+        public int doStartTag() throws JspException {
+            return test ? EVAL_BODY_INCLUDE : SKIP_BODY;
+        }
+
+        @Override
+        public void release() {
+            super.release();
+            test = false;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.tagplugins.jstl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.jsp.JspWriter;
+import javax.servlet.jsp.PageContext;
+
+import org.apache.jasper.tagplugins.jstl.core.Out;
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * XML escaping of <code>&lt;c:out&gt;</code> values, both into a String and
+ * straight into the page's JspWriter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscapeXmlBenchmark {
+
+    @Param({"plain", "markup"})
+    private String text;
+
+    private String value;
+    private TesterJspServlet servlet;
+    private PageContext pageContext;
+    private JspWriter out;
+
+    @Setup
+    public void setUp() {
+        if ("plain".equals(text)) {
+            value = "The quick brown fox jumps over the lazy dog, again and again.";
+        } else {
+            value = "<a href=\"/search?q=fox&amp;page=2\">Fox's \"lazy\" dog</a>";
+        }
+        servlet = new TesterJspServlet();
+        pageContext = servlet.getPageContext(new TesterRequest(), new TesterResponse());
+        out = pageContext.getOut();
+    }
+
+    @TearDown
+    public void tearDown() {
+        servlet.releasePageContext(pageContext);
+    }
+
+    @Benchmark
+    public String escapeXml() {
+        return Util.escapeXml(value);
+    }
+
+    @Benchmark
+    public void escapeXmlThenWrite() throws IOException {
+        out.write(Util.escapeXml(value));
+    }
+
+    @Benchmark
+    public void writeEscapedXml() throws IOException {
+        Util.writeEscapedXml(value, out);
+    }
+
+    @Benchmark
+    public boolean cOut() throws IOException {
+        // As generated for <c:out value="..."/>
+        return Out.output(out, null, value, null, true);
+    }
+}
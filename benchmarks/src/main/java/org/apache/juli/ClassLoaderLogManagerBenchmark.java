@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.juli;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up existing loggers with {@link ClassLoaderLogManager#getLogger(String)}
+ * while the context class loader changes between a number of web
+ * applications, as it does when requests for different applications are
+ * served by the same threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassLoaderLogManagerBenchmark {
+
+    private static final String NAME = "org.apache.jasper.compiler.Compiler";
+
+    // A power of two
+    @Param({"1", "8"})
+    private int webapps;
+
+    private ClassLoaderLogManager manager;
+    private ClassLoader[] classLoaders;
+
+    @Setup
+    public void setUp() {
+        manager = new ClassLoaderLogManager();
+        classLoaders = new ClassLoader[webapps];
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+        try {
+            for (int i = 0; i < webapps; i++) {
+                classLoaders[i] = new URLClassLoader(new URL[0], original);
+                Thread.currentThread().setContextClassLoader(classLoaders[i]);
+                manager.addLogger(new Logger(NAME, null) {
+                    // Logger's constructor is protected
+                });
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.reset();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int next;
+    }
+
+    @Benchmark
+    public Logger getLogger(ThreadState state) {
+        return getLogger0(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Logger getLoggerConcurrently(ThreadState state) {
+        return getLogger0(state);
+    }
+
+    private Logger getLogger0(ThreadState state) {
+        Thread.currentThread().setContextClassLoader(classLoaders[state.next]);
+        state.next = (state.next + 1) & (webapps - 1);
+        return manager.getLogger(NAME);
+    }
+}
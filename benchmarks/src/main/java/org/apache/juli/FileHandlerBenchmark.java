@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.juli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Records per second written by {@link FileHandler} for each flush policy.
+ * Files are rotated by size and only the newest are kept, so that long runs
+ * do not fill the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileHandlerBenchmark {
+
+    @Param({FileHandler.FLUSH_POLICY_RECORD, FileHandler.FLUSH_POLICY_BATCH,
+            FileHandler.FLUSH_POLICY_INTERVAL})
+    private String flushPolicy;
+
+    private File directory;
+    private FileHandler handler;
+    private final LogRecord record = new LogRecord(Level.INFO,
+            "Compiling [/WEB-INF/jsp/index.jsp] took [42] ms");
+
+    @Setup
+    public void setUp() throws Exception {
+        Properties props = new Properties();
+        String prefix = FileHandler.class.getName() + ".";
+        props.setProperty(prefix + "rotatable", "false");
+        props.setProperty(prefix + "bufferSize", "0");
+        props.setProperty(prefix + "flushPolicy", flushPolicy);
+        props.setProperty(prefix + "maxFileSize", String.valueOf(64 * 1024 * 1024));
+        props.setProperty(prefix + "maxFiles", "2");
+        props.setProperty(prefix + "formatter", OneLineFormatter.class.getName());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        props.store(out, null);
+        LogManager.getLogManager().readConfiguration(new ByteArrayInputStream(out.toByteArray()));
+
+        directory = Files.createTempDirectory("juli").toFile();
+        handler = new FileHandler(directory.getAbsolutePath(), "benchmark.", ".log");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        handler.close();
+        LogManager.getLogManager().readConfiguration();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void publish() {
+        handler.publish(record);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publishConcurrently() {
+        handler.publish(record);
+    }
+}
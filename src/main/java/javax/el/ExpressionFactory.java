@@ -26,9 +26,6 @@ import java.security.PrivilegedAction;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  *
@@ -113,20 +110,12 @@ public abstract class ExpressionFactory {
             }
         }
 
-        final Lock readLock = cacheValue.getLock().readLock();
-        readLock.lock();
-        try {
-            clazz = cacheValue.getFactoryClass();
-        } finally {
-            readLock.unlock();
-        }
+        clazz = cacheValue.getFactoryClass();
 
         if (clazz == null) {
             String className = null;
             try {
-                final Lock writeLock = cacheValue.getLock().writeLock();
-                writeLock.lock();
-                try {
+                synchronized (cacheValue) {
                     className = cacheValue.getFactoryClassName();
                     if (className == null) {
                         className = discoverClassName(tccl);
@@ -138,8 +127,6 @@ public abstract class ExpressionFactory {
                         clazz = tccl.loadClass(className);
                     }
                     cacheValue.setFactoryClass(clazz);
-                } finally {
-                    writeLock.unlock();
                 }
             } catch (ClassNotFoundException e) {
                 throw new ELException(Util.message(null, "expressionFactory.cannotFind", className), e);
@@ -273,18 +260,18 @@ public abstract class ExpressionFactory {
         }
     }
 
+    /*
+     * The factory class is read without locking. Discovery and loading of
+     * the class happen under the monitor of this object, and the discovered
+     * class name is kept so that discovery runs once per class loader.
+     */
     private static class CacheValue {
-        private final ReadWriteLock lock = new ReentrantReadWriteLock();
         private String className;
-        private WeakReference<Class<?>> ref;
+        private volatile WeakReference<Class<?>> ref;
 
         public CacheValue() {
         }
 
-        public ReadWriteLock getLock() {
-            return lock;
-        }
-
         public String getFactoryClassName() {
             return className;
         }
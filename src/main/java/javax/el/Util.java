@@ -27,9 +27,6 @@ import java.text.MessageFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 class Util {
 
@@ -106,25 +103,15 @@ class Util {
             }
         }
 
-        final Lock readLock = cacheValue.getLock().readLock();
-        readLock.lock();
-        try {
-            factory = cacheValue.getExpressionFactory();
-        } finally {
-            readLock.unlock();
-        }
+        factory = cacheValue.getExpressionFactory();
 
         if (factory == null) {
-            final Lock writeLock = cacheValue.getLock().writeLock();
-            writeLock.lock();
-            try {
+            synchronized (cacheValue) {
                 factory = cacheValue.getExpressionFactory();
                 if (factory == null) {
                     factory = ExpressionFactory.newInstance();
                     cacheValue.setExpressionFactory(factory);
                 }
-            } finally {
-                writeLock.unlock();
             }
         }
 
@@ -167,17 +154,17 @@ class Util {
         }
     }
 
+    /*
+     * The factory is read without locking. It is only created, under the
+     * monitor of this object, when it has not been created yet or has been
+     * garbage collected.
+     */
     private static class CacheValue {
-        private final ReadWriteLock lock = new ReentrantReadWriteLock();
-        private WeakReference<ExpressionFactory> ref;
+        private volatile WeakReference<ExpressionFactory> ref;
 
         public CacheValue() {
         }
 
-        public ReadWriteLock getLock() {
-            return lock;
-        }
-
         public ExpressionFactory getExpressionFactory() {
             return ref != null ? ref.get() : null;
         }
@@ -205,13 +192,34 @@ class Util {
             paramTypes = getTypesFromValues(paramValues);
         }
 
+        MemberKey key = MemberKey.create(clazz, methodName, paramTypes,
+                paramValues);
+        Object cached = lookupMember(clazz, key);
+        if (cached != null) {
+            return (Method) unwrapCachedMember(cached);
+        }
+
         Method[] methods = clazz.getMethods();
 
         List<Wrapper> wrappers = Wrapper.wrap(methods, methodName);
 
-        Wrapper result = findWrapper(clazz, wrappers, methodName, paramTypes, paramValues);
+        boolean[] valueDependent = new boolean[1];
+        Wrapper result;
+        try {
+            result = findWrapper(clazz, wrappers, methodName, paramTypes,
+                    paramValues, valueDependent);
+        } catch (MethodNotFoundException e) {
+            if (!valueDependent[0]) {
+                cacheMember(clazz, key, e.getMessage());
+            }
+            throw e;
+        }
 
-        return getMethod(clazz, (Method) result.unWrap());
+        Method m = getMethod(clazz, (Method) result.unWrap());
+        if (!valueDependent[0]) {
+            cacheMember(clazz, key, m);
+        }
+        return m;
     }
 
     /*
@@ -220,7 +228,8 @@ class Util {
      */
     @SuppressWarnings("null")
     private static Wrapper findWrapper(Class<?> clazz, List<Wrapper> wrappers,
-            String name, Class<?>[] paramTypes, Object[] paramValues) {
+            String name, Class<?>[] paramTypes, Object[] paramValues,
+            boolean[] valueDependent) {
 
         Map<Wrapper,MatchResult> candidates = new HashMap<Wrapper,MatchResult>();
 
@@ -282,6 +291,7 @@ class Util {
                                 noMatch = true;
                                 break;
                             } else {
+                                valueDependent[0] = true;
                                 if (isCoercibleFrom(paramValues[j], varType)) {
                                     coercibleMatch++;
                                 } else {
@@ -304,6 +314,7 @@ class Util {
                             noMatch = true;
                             break;
                         } else {
+                            valueDependent[0] = true;
                             if (isCoercibleFrom(paramValues[i], mParamTypes[i])) {
                                 coercibleMatch++;
                             } else {
@@ -582,13 +593,87 @@ class Util {
             paramTypes = getTypesFromValues(paramValues);
         }
 
+        MemberKey key = MemberKey.create(clazz, methodName, paramTypes,
+                paramValues);
+        Object cached = lookupMember(clazz, key);
+        if (cached != null) {
+            return (Constructor<?>) unwrapCachedMember(cached);
+        }
+
         Constructor<?>[] constructors = clazz.getConstructors();
 
         List<Wrapper> wrappers = Wrapper.wrap(constructors);
 
-        Wrapper result = findWrapper(clazz, wrappers, methodName, paramTypes, paramValues);
+        boolean[] valueDependent = new boolean[1];
+        Wrapper result;
+        try {
+            result = findWrapper(clazz, wrappers, methodName, paramTypes,
+                    paramValues, valueDependent);
+        } catch (MethodNotFoundException e) {
+            if (!valueDependent[0]) {
+                cacheMember(clazz, key, e.getMessage());
+            }
+            throw e;
+        }
+
+        Constructor<?> c = getConstructor(clazz, (Constructor<?>) result.unWrap());
+        if (!valueDependent[0]) {
+            cacheMember(clazz, key, c);
+        }
+        return c;
+    }
+
+
+    /*
+     * Resolved methods and constructors, per class. An entry is a Method or
+     * Constructor, NO_ACCESSIBLE_MEMBER if the resolved member has no public
+     * equivalent, or the message of the MethodNotFoundException thrown when
+     * resolution failed. Only resolutions that depended on the parameter
+     * types alone, and not on the parameter values, are cached.
+     */
+    private static final ClassValue<ConcurrentMap<MemberKey,Object>> MEMBERS =
+            new ClassValue<ConcurrentMap<MemberKey,Object>>() {
+        @Override
+        protected ConcurrentMap<MemberKey,Object> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<MemberKey,Object>();
+        }
+    };
+
+    private static final int MEMBER_CACHE_SIZE = 256;
+
+    private static final Object NO_ACCESSIBLE_MEMBER = new Object();
+
+
+    private static Object lookupMember(Class<?> clazz, MemberKey key) {
+        if (key == null) {
+            return null;
+        }
+        return MEMBERS.get(clazz).get(key);
+    }
+
+
+    private static void cacheMember(Class<?> clazz, MemberKey key,
+            Object member) {
+        if (key == null) {
+            return;
+        }
+        ConcurrentMap<MemberKey,Object> members = MEMBERS.get(clazz);
+        // Bound the number of entries for a class, in case the parameter
+        // types vary without limit
+        if (members.size() < MEMBER_CACHE_SIZE) {
+            members.put(key, member == null ? NO_ACCESSIBLE_MEMBER : member);
+        }
+    }
+
 
-        return getConstructor(clazz, (Constructor<?>) result.unWrap());
+    private static Object unwrapCachedMember(Object cached) {
+        if (cached == NO_ACCESSIBLE_MEMBER) {
+            return null;
+        }
+        if (cached instanceof String) {
+            throw new MethodNotFoundException((String) cached);
+        }
+        return cached;
     }
 
 
@@ -667,6 +752,81 @@ class Util {
     }
 
 
+    /*
+     * Identifies a method or constructor lookup. The key refers to the
+     * parameter types, and is stored with the class being searched, so no
+     * key is created if a parameter type would outlive that class by doing
+     * so.
+     */
+    private static final class MemberKey {
+
+        private final String name;
+        private final Class<?>[] paramTypes;
+        // The number of parameter values, or -1 if none were provided
+        private final int valueCount;
+        private final int hash;
+
+        private MemberKey(String name, Class<?>[] paramTypes, int valueCount) {
+            this.name = name;
+            this.paramTypes = paramTypes.clone();
+            this.valueCount = valueCount;
+            this.hash = (name.hashCode() * 31 +
+                    Arrays.hashCode(paramTypes)) * 31 + valueCount;
+        }
+
+        static MemberKey create(Class<?> clazz, String name,
+                Class<?>[] paramTypes, Object[] paramValues) {
+            try {
+                ClassLoader cl = clazz.getClassLoader();
+                for (Class<?> paramType : paramTypes) {
+                    if (paramType != null &&
+                            !isVisibleFrom(paramType.getClassLoader(), cl)) {
+                        return null;
+                    }
+                }
+            } catch (SecurityException e) {
+                // Not permitted to inspect the class loaders, don't cache
+                return null;
+            }
+            return new MemberKey(name, paramTypes,
+                    paramValues == null ? -1 : paramValues.length);
+        }
+
+        private static boolean isVisibleFrom(ClassLoader target,
+                ClassLoader from) {
+            if (target == null) {
+                // Bootstrap class loader
+                return true;
+            }
+            for (ClassLoader cl = from; cl != null; cl = cl.getParent()) {
+                if (cl == target) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey other = (MemberKey) obj;
+            return hash == other.hash && valueCount == other.valueCount &&
+                    name.equals(other.name) &&
+                    Arrays.equals(paramTypes, other.paramTypes);
+        }
+    }
+
+
     private abstract static class Wrapper {
 
         public static List<Wrapper> wrap(Method[] methods, String name) {
@@ -21,7 +21,9 @@ import java.beans.FeatureDescriptor;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -281,18 +283,26 @@ public class ImplicitObjectELResolver extends ELResolver {
                         return null;
                     }
 
+                    // Cookies do not change during a request, so they are
+                    // indexed once by name on first use
+                    private Map<String,Cookie> cookiesByName;
+
                     @Override
                     protected Cookie getAttribute(String name) {
-                        Cookie[] c = ((HttpServletRequest) page.getRequest())
-                                .getCookies();
-                        if (c != null) {
-                            for (int i = 0; i < c.length; i++) {
-                                if (name.equals(c[i].getName())) {
-                                    return c[i];
+                        if (cookiesByName == null) {
+                            Cookie[] c = ((HttpServletRequest) page
+                                    .getRequest()).getCookies();
+                            if (c == null || c.length == 0) {
+                                cookiesByName = Collections.emptyMap();
+                            } else {
+                                cookiesByName = new HashMap<String,Cookie>();
+                                // The first cookie with a given name wins
+                                for (int i = c.length - 1; i >= 0; i--) {
+                                    cookiesByName.put(c[i].getName(), c[i]);
                                 }
                             }
                         }
-                        return null;
+                        return cookiesByName.get(name);
                     }
 
                 };
@@ -328,19 +338,43 @@ public class ImplicitObjectELResolver extends ELResolver {
                                 .getHeaderNames();
                     }
 
+                    // Headers do not change during a request, so the values
+                    // of each header are only read once. An empty array
+                    // marks a header that is not present.
+                    private final Map<String,String[]> values =
+                            new HashMap<String,String[]>();
+
                     @Override
                     protected String[] getAttribute(String name) {
-                        Enumeration<String> e =
-                            ((HttpServletRequest) page.getRequest())
-                                    .getHeaders(name);
-                        if (e != null) {
+                        String[] result = getValues(name);
+                        if (result.length == 0) {
+                            return result;
+                        }
+                        // The caller may modify the array
+                        return result.clone();
+                    }
+
+                    @Override
+                    protected boolean containsAttribute(String name) {
+                        return getValues(name).length > 0;
+                    }
+
+                    private String[] getValues(String name) {
+                        String[] result = values.get(name);
+                        if (result == null) {
                             List<String> list = new ArrayList<String>();
-                            while (e.hasMoreElements()) {
-                                list.add(e.nextElement());
+                            Enumeration<String> e =
+                                ((HttpServletRequest) page.getRequest())
+                                        .getHeaders(name);
+                            if (e != null) {
+                                while (e.hasMoreElements()) {
+                                    list.add(e.nextElement());
+                                }
                             }
-                            return list.toArray(new String[list.size()]);
+                            result = list.toArray(new String[list.size()]);
+                            values.put(name, result);
                         }
-                        return null;
+                        return result;
                     }
 
                 };
@@ -504,6 +538,14 @@ public class ImplicitObjectELResolver extends ELResolver {
 
         protected abstract V getAttribute(String name);
 
+        /*
+         * None of the scopes can hold a null value, so there is no need to
+         * enumerate the names
+         */
+        protected boolean containsAttribute(String name) {
+            return getAttribute(name) != null;
+        }
+
         @SuppressWarnings("unused")
         protected void removeAttribute(String name) {
             throw new UnsupportedOperationException();
@@ -541,16 +583,8 @@ public class ImplicitObjectELResolver extends ELResolver {
 
         @Override
         public final boolean containsKey(Object key) {
-            if (key == null) {
-                return false;
-            }
-            Enumeration<String> e = getAttributeNames();
-            if (e != null) {
-                while (e.hasMoreElements()) {
-                    if (key.equals(e.nextElement())) {
-                        return true;
-                    }
-                }
+            if (key instanceof String) {
+                return containsAttribute((String) key);
             }
             return false;
         }
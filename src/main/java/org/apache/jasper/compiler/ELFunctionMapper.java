@@ -17,10 +17,16 @@
 
 package org.apache.jasper.compiler;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
 
 import javax.servlet.jsp.tagext.FunctionInfo;
 
@@ -39,6 +45,13 @@ import org.apache.tomcat.util.security.PrivilegedGetTccl;
 
 public class ELFunctionMapper {
 
+    /**
+     * The URIs of the tag libraries whose functions are called directly from
+     * the generated code when an EL expression consists of a single call of
+     * one of them, bypassing the function mapper and reflection.
+     */
+    private static final Set<String> DIRECT_CALL_URIS = new HashSet<String>(
+            Arrays.asList("http://java.sun.com/jsp/jstl/functions"));
 
     private int currFunc = 0;
     StringBuilder ds;  // Contains codes to initialize the functions mappers.
@@ -191,6 +204,9 @@ public class ELFunctionMapper {
                 return;
             }
 
+            // The map is still needed wherever the direct call can not be used
+            setDirectCall(el);
+
             // Reuse a previous map if possible
             String decName = matchMap(functions);
             if (decName != null) {
@@ -260,6 +276,125 @@ public class ELFunctionMapper {
             el.setMapName(decName);
         }
 
+        /**
+         * Records the function and its argument expressions on an EL that
+         * consists of a single call of a function from one of the
+         * {@link #DIRECT_CALL_URIS}, with arguments that call no functions.
+         */
+        private void setDirectCall(ELNode.Nodes el) throws JasperException {
+            Iterator<ELNode> iter = el.iterator();
+            ELNode node = iter.next();
+            if (iter.hasNext() || !(node instanceof ELNode.Root) ||
+                    ((ELNode.Root) node).getType() != '$') {
+                return;
+            }
+
+            iter = ((ELNode.Root) node).getExpression().iterator();
+            node = iter.next();
+            if (!(node instanceof ELNode.Function) ||
+                    !DIRECT_CALL_URIS.contains(((ELNode.Function) node).getUri())) {
+                return;
+            }
+            ELNode.Function f = (ELNode.Function) node;
+
+            // Rebuild the text following the opening parenthesis
+            ELParser.TextBuilder tb = new ELParser.TextBuilder(false);
+            while (iter.hasNext()) {
+                node = iter.next();
+                if (!(node instanceof ELNode.ELText)) {
+                    return;
+                }
+                node.accept(tb);
+            }
+            String text = tb.getText().trim();
+            if (!text.endsWith(")")) {
+                return;
+            }
+            String[] args = splitArguments(text.substring(0, text.length() - 1));
+            if (args == null) {
+                return;
+            }
+
+            String[] params = f.getParameters();
+            if (params.length != args.length) {
+                return;
+            }
+            Class<?>[] types = new Class<?>[params.length];
+            for (int i = 0; i < params.length; i++) {
+                try {
+                    types[i] = JspUtil.toClass(params[i], getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new JasperException(e);
+                }
+            }
+            Method m;
+            try {
+                m = loadClass(f.getFunctionInfo().getFunctionClass()).getMethod(
+                        f.getMethodName(), types);
+            } catch (NoSuchMethodException e) {
+                return;
+            }
+            if (!Modifier.isStatic(m.getModifiers())) {
+                return;
+            }
+
+            for (int i = 0; i < args.length; i++) {
+                args[i] = "${" + args[i] + "}";
+            }
+            f.setMethod(m);
+            el.setDirectCall(f, args);
+        }
+
+        /**
+         * Split the arguments of a function call at the top level commas.
+         *
+         * @param text The text between the parentheses of the call
+         * @return the arguments or null if the text is not a well formed
+         *         argument list, such as when the closing parenthesis of
+         *         the call is not the last one in the expression.
+         */
+        private String[] splitArguments(String text) {
+            ArrayList<String> args = new ArrayList<String>();
+            int depth = 0;
+            char quote = 0;
+            int start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char ch = text.charAt(i);
+                if (quote != 0) {
+                    if (ch == '\\') {
+                        i++;
+                    } else if (ch == quote) {
+                        quote = 0;
+                    }
+                } else if (ch == '\'' || ch == '"') {
+                    quote = ch;
+                } else if (ch == '(' || ch == '[' || ch == '{') {
+                    depth++;
+                } else if (ch == ')' || ch == ']' || ch == '}') {
+                    if (--depth < 0) {
+                        return null;
+                    }
+                } else if (ch == ',' && depth == 0) {
+                    args.add(text.substring(start, i).trim());
+                    start = i + 1;
+                }
+            }
+            if (quote != 0 || depth != 0) {
+                return null;
+            }
+            String last = text.substring(start).trim();
+            if (last.length() == 0 && args.isEmpty()) {
+                return new String[0];
+            }
+            args.add(last);
+            for (String arg : args) {
+                if (arg.length() == 0) {
+                    return null;
+                }
+            }
+            return args.toArray(new String[args.size()]);
+        }
+
         /**
          * Find the name of the function mapper for an EL.  Reuse a
          * previously generated one if possible.
@@ -303,8 +438,18 @@ public class ELFunctionMapper {
          * @return          Canonical equivalent
          */
         private String getCanonicalName(String className) throws JasperException {
-            Class<?> clazz;
+            return loadClass(className).getCanonicalName();
+        }
 
+        private Class<?> loadClass(String className) throws JasperException {
+            try {
+                return Class.forName(className, false, getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new JasperException(e);
+            }
+        }
+
+        private ClassLoader getClassLoader() {
             ClassLoader tccl;
             if (Constants.IS_SECURITY_ENABLED) {
                 PrivilegedAction<ClassLoader> pa = new PrivilegedGetTccl();
@@ -313,12 +458,7 @@ public class ELFunctionMapper {
                 tccl = Thread.currentThread().getContextClassLoader();
             }
 
-            try {
-                clazz = Class.forName(className, false, tccl);
-            } catch (ClassNotFoundException e) {
-                throw new JasperException(e);
-            }
-            return clazz.getCanonicalName();
+            return tccl;
         }
     }
 }
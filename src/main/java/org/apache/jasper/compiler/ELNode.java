@@ -17,6 +17,7 @@
 
 package org.apache.jasper.compiler;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -127,6 +128,7 @@ abstract class ELNode {
         private FunctionInfo functionInfo;
         private String methodName;
         private String[] parameters;
+        private Method method;
 
         Function(String prefix, String name, String originalText) {
             this.prefix = prefix;
@@ -182,6 +184,18 @@ abstract class ELNode {
         public String[] getParameters() {
             return parameters;
         }
+
+        public void setMethod(Method method) {
+            this.method = method;
+        }
+
+        /**
+         * @return the resolved method if the function may be called directly
+         *         from the generated code, else null.
+         */
+        public Method getMethod() {
+            return method;
+        }
     }
 
     /**
@@ -193,6 +207,11 @@ abstract class ELNode {
            EL expression, for communication to Generator.
          */
         String mapName = null;        // The function map associated this EL
+        /* Set if the EL is a single call of a function that may be called
+           directly, with the EL expressions for its arguments.
+         */
+        private Function directFunction = null;
+        private String[] directArguments = null;
         private final List<ELNode> list;
 
         public Nodes() {
@@ -245,6 +264,19 @@ abstract class ELNode {
             return mapName;
         }
 
+        public void setDirectCall(Function function, String[] arguments) {
+            this.directFunction = function;
+            this.directArguments = arguments;
+        }
+
+        public Function getDirectFunction() {
+            return directFunction;
+        }
+
+        public String[] getDirectArguments() {
+            return directArguments;
+        }
+
     }
 
     /*
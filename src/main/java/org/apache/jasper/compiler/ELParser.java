@@ -542,6 +542,95 @@ public class ELParser {
     }
 
 
+    /**
+     * Returned by {@link #parseLiteral(String)} for an expression that is not
+     * a literal.
+     */
+    static final Object NOT_A_LITERAL = new Object();
+
+    /**
+     * Evaluates an EL expression, without the enclosing ${ and }, that
+     * consists of a single boolean, integer, floating point, string or null
+     * literal, optionally preceded by a minus sign if it is a number.
+     *
+     * @param expression The expression
+     * @return the value of the literal, which is a Boolean, Long, Double,
+     *         String or null, or {@link #NOT_A_LITERAL}
+     */
+    static Object parseLiteral(String expression) {
+        String s = expression.trim();
+        int len = s.length();
+        if (len == 0) {
+            return NOT_A_LITERAL;
+        }
+        if ("true".equals(s)) {
+            return Boolean.TRUE;
+        } else if ("false".equals(s)) {
+            return Boolean.FALSE;
+        } else if ("null".equals(s)) {
+            return null;
+        }
+
+        char quote = s.charAt(0);
+        if (quote == '\'' || quote == '"') {
+            if (len < 2 || s.charAt(len - 1) != quote) {
+                return NOT_A_LITERAL;
+            }
+            StringBuilder value = new StringBuilder(len);
+            for (int i = 1; i < len - 1; i++) {
+                char ch = s.charAt(i);
+                if (ch == '\\') {
+                    if (++i == len - 1) {
+                        return NOT_A_LITERAL;
+                    }
+                    ch = s.charAt(i);
+                    if (ch != '\\' && ch != '\'' && ch != '"') {
+                        return NOT_A_LITERAL;
+                    }
+                } else if (ch == quote) {
+                    // The literal ends before the expression does
+                    return NOT_A_LITERAL;
+                }
+                value.append(ch);
+            }
+            return value.toString();
+        }
+
+        int start = s.charAt(0) == '-' ? 1 : 0;
+        if (start == len) {
+            return NOT_A_LITERAL;
+        }
+        boolean floatingPoint = false;
+        for (int i = start; i < len; i++) {
+            char ch = s.charAt(i);
+            if (ch == '.' || ch == 'e' || ch == 'E' ||
+                    (i > start && (ch == '+' || ch == '-') &&
+                    (s.charAt(i - 1) == 'e' || s.charAt(i - 1) == 'E'))) {
+                floatingPoint = true;
+            } else if (ch < '0' || ch > '9') {
+                return NOT_A_LITERAL;
+            }
+        }
+        try {
+            if (floatingPoint) {
+                Double d = Double.valueOf(s);
+                if (d.isInfinite() || d.isNaN()) {
+                    // Has no Java literal
+                    return NOT_A_LITERAL;
+                }
+                return d;
+            } else {
+                // The minus sign is an operator applied to the literal, and
+                // a literal too large for a Long is a BigInteger
+                Long l = Long.valueOf(s.substring(start));
+                return start == 0 ? l : Long.valueOf(-l.longValue());
+            }
+        } catch (NumberFormatException e) {
+            // Such as an integer that is too large for a Long
+            return NOT_A_LITERAL;
+        }
+    }
+
     static class TextBuilder extends ELNode.Visitor {
 
         protected final boolean isDeferredSyntaxAllowedAsLiteral;
@@ -123,6 +123,8 @@ class Generator {
 
     private GenBuffer charArrayBuffer;
 
+    private GenBuffer expressionBuffer;
+
     private final DateFormat timestampFormat;
 
     private final ELInterpreter elInterpreter;
@@ -849,6 +851,8 @@ class Generator {
 
         private HashMap<String,String> textMap;
 
+        private int expressionCount;
+
         /**
          * Constructor.
          */
@@ -896,8 +900,12 @@ class Generator {
                 }
                 return v;
             } else if (attr.isELInterpreterInput()) {
-                v = elInterpreter.interpreterCall(ctxt, this.isTagFile, v,
-                        expectedType, attr.getEL().getMapName(), isXml);
+                String call = directCall(attr.getEL(), expectedType, isXml);
+                if (call == null) {
+                    call = elInterpreter.interpreterCall(ctxt, this.isTagFile,
+                            v, expectedType, attr.getEL().getMapName(), isXml);
+                }
+                v = call;
                 if (encode) {
                     return "org.apache.jasper.runtime.JspRuntimeLibrary.URLEncode("
                             + v + ", request.getCharacterEncoding())";
@@ -982,11 +990,13 @@ class Generator {
         public void visit(Node.ELExpression n) throws JasperException {
             n.setBeginJavaLine(out.getJavaLine());
             if (!pageInfo.isELIgnored() && (n.getEL() != null)) {
-                out.printil("out.write("
-                        + elInterpreter.interpreterCall(ctxt, this.isTagFile,
-                                n.getType() + "{" + n.getText() + "}",
-                                String.class, n.getEL().getMapName(), false) +
-                        ");");
+                String call = directCall(n.getEL(), String.class, false);
+                if (call == null) {
+                    call = elInterpreter.interpreterCall(ctxt, this.isTagFile,
+                            n.getType() + "{" + n.getText() + "}",
+                            String.class, n.getEL().getMapName(), false);
+                }
+                out.printil("out.write(" + call + ");");
             } else {
                 out.printil("out.write("
                         + quote(n.getType() + "{" + n.getText() + "}") + ");");
@@ -1027,10 +1037,10 @@ class Generator {
                 prepareParams(n);
             }
 
-            out.printin("org.apache.jasper.runtime.JspRuntimeLibrary.include(request, response, "
-                    + pageParam);
+            out.printin("_jspx_page_context.include(");
+            out.print(pageParam);
             printParams(n, pageParam, page.isLiteral());
-            out.println(", out, " + isFlush + ");");
+            out.println(", " + isFlush + ");");
 
             n.setEndJavaLine(out.getJavaLine());
         }
@@ -2989,17 +2999,23 @@ class Generator {
                 // depending on type
                 if (attr.isDeferredInput()
                         || ((tai != null) && ValueExpression.class.getName().equals(tai.getTypeName()))) {
-                    sb.append("new org.apache.jasper.el.JspValueExpression(");
-                    sb.append(quote(mark));
-                    sb.append(",_jsp_getExpressionFactory().createValueExpression(");
-                    if (attr.getEL() != null) { // optimize
+                    if (attr.getEL() != null) {
+                        // parsed once for the page class
+                        sb.append(declareDeferredExpression(mark, attrValue,
+                                attr.getExpectedTypeName(), null));
+                        sb.append(".getValueExpression(");
+                        sb.append("_jsp_getExpressionFactory(),");
                         sb.append(elContext);
+                        sb.append(')');
+                    } else {
+                        sb.append("new org.apache.jasper.el.JspValueExpression(");
+                        sb.append(quote(mark));
+                        sb.append(",_jsp_getExpressionFactory().createValueExpression(");
+                        sb.append(quote(attrValue));
                         sb.append(',');
+                        sb.append(JspUtil.toJavaSourceTypeFromTld(attr.getExpectedTypeName()));
+                        sb.append("))");
                     }
-                    sb.append(quote(attrValue));
-                    sb.append(',');
-                    sb.append(JspUtil.toJavaSourceTypeFromTld(attr.getExpectedTypeName()));
-                    sb.append("))");
                     // should the expression be evaluated before passing to
                     // the setter?
                     boolean evaluate = false;
@@ -3022,34 +3038,25 @@ class Generator {
                     attrValue = sb.toString();
                 } else if (attr.isDeferredMethodInput()
                         || ((tai != null) && MethodExpression.class.getName().equals(tai.getTypeName()))) {
-                    sb.append("new org.apache.jasper.el.JspMethodExpression(");
-                    sb.append(quote(mark));
-                    sb.append(",_jsp_getExpressionFactory().createMethodExpression(");
+                    sb.append(declareDeferredExpression(mark, attrValue,
+                            attr.getExpectedTypeName(),
+                            attr.getParameterTypeNames()));
+                    sb.append(".getMethodExpression(");
+                    sb.append("_jsp_getExpressionFactory(),");
                     sb.append(elContext);
-                    sb.append(',');
-                    sb.append(quote(attrValue));
-                    sb.append(',');
-                    sb.append(JspUtil.toJavaSourceTypeFromTld(attr.getExpectedTypeName()));
-                    sb.append(',');
-                    sb.append("new java.lang.Class[] {");
-
-                    String[] p = attr.getParameterTypeNames();
-                    for (int i = 0; i < p.length; i++) {
-                        sb.append(JspUtil.toJavaSourceTypeFromTld(p[i]));
-                        sb.append(',');
-                    }
-                    if (p.length > 0) {
-                        sb.setLength(sb.length() - 1);
-                    }
-
-                    sb.append("}))");
+                    sb.append(')');
                     attrValue = sb.toString();
                 } else {
                     // run attrValue through the expression interpreter
-                    String mapName = (attr.getEL() != null) ? attr.getEL()
-                            .getMapName() : null;
-                    attrValue = elInterpreter.interpreterCall(ctxt,
-                            this.isTagFile, attrValue, c[0], mapName, false);
+                    String call = (attr.getEL() != null) ?
+                            directCall(attr.getEL(), c[0], false) : null;
+                    if (call == null) {
+                        String mapName = (attr.getEL() != null) ? attr.getEL()
+                                .getMapName() : null;
+                        call = elInterpreter.interpreterCall(ctxt,
+                                this.isTagFile, attrValue, c[0], mapName, false);
+                    }
+                    attrValue = call;
                 }
             } else {
                 attrValue = convertString(c[0], attrValue, localName,
@@ -3058,6 +3065,166 @@ class Generator {
             return attrValue;
         }
 
+        /**
+         * Declares the static field holding a deferred expression of the
+         * page, which is created on first use.
+         *
+         * @param mark The location of the attribute, for error messages
+         * @param expression The text of the expression
+         * @param expectedTypeName The expected type, as named in the TLD
+         * @param paramTypeNames The parameter types, as named in the TLD, of
+         *            a method expression, or null for a value expression
+         * @return the name of the field
+         */
+        private String declareDeferredExpression(String mark,
+                String expression, String expectedTypeName,
+                String[] paramTypeNames) {
+            if (expressionBuffer == null) {
+                expressionBuffer = new GenBuffer();
+                expressionBuffer.getOut().pushIndent();
+            }
+            ServletWriter exOut = expressionBuffer.getOut();
+            String name = "_jspx_deferred_expression_" + expressionCount++;
+            exOut.printin("private static final org.apache.jasper.el.DeferredExpression ");
+            exOut.print(name);
+            exOut.print(" = new org.apache.jasper.el.DeferredExpression(");
+            exOut.print(quote(mark));
+            exOut.print(", ");
+            exOut.print(quote(expression));
+            exOut.print(", ");
+            exOut.print(JspUtil.toJavaSourceTypeFromTld(expectedTypeName));
+            if (paramTypeNames != null) {
+                exOut.print(", new java.lang.Class[] {");
+                for (int i = 0; i < paramTypeNames.length; i++) {
+                    if (i > 0) {
+                        exOut.print(", ");
+                    }
+                    exOut.print(JspUtil.toJavaSourceTypeFromTld(paramTypeNames[i]));
+                }
+                exOut.print("}");
+            }
+            exOut.println(");");
+            return name;
+        }
+
+        /**
+         * Generates a direct call of the function an EL expression consists
+         * of, as identified by {@link ELFunctionMapper}. Only the arguments
+         * are passed to the expression interpreter.
+         *
+         * @param el           The parsed EL expression
+         * @param expectedType The expected type of the result
+         * @param xmlEscape    True if the result should be XML escaped
+         * @return the Java expression or null if the expression has to be
+         *         interpreted, such as when the result of the function needs
+         *         a coercion that Java does not perform.
+         */
+        private String directCall(ELNode.Nodes el, Class<?> expectedType,
+                boolean xmlEscape) {
+            ELNode.Function f = el.getDirectFunction();
+            if (f == null || xmlEscape) {
+                return null;
+            }
+            Method m = f.getMethod();
+            Class<?> returnType = m.getReturnType();
+
+            String prefix;
+            String suffix = ")";
+            if (expectedType == String.class) {
+                if (returnType == String.class) {
+                    prefix = "org.apache.jasper.runtime.JspRuntimeLibrary.emptyIfNull(";
+                } else if (returnType.isPrimitive() && returnType != void.class) {
+                    prefix = "String.valueOf(";
+                } else {
+                    return null;
+                }
+            } else if (expectedType == Object.class && returnType != void.class) {
+                prefix = "(java.lang.Object) ";
+                suffix = "";
+            } else if (expectedType == returnType && returnType.isPrimitive()) {
+                prefix = "";
+                suffix = "";
+            } else {
+                // Wrappers, for example, are coerced from null to zero
+                return null;
+            }
+
+            StringBuilder call = new StringBuilder(prefix);
+            call.append(m.getDeclaringClass().getCanonicalName());
+            call.append('.');
+            call.append(m.getName());
+            call.append('(');
+            Class<?>[] types = m.getParameterTypes();
+            String[] args = el.getDirectArguments();
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) {
+                    call.append(", ");
+                }
+                String literal = literalArgument(args[i], types[i]);
+                if (literal != null) {
+                    call.append(literal);
+                } else {
+                    call.append(elInterpreter.interpreterCall(ctxt,
+                            this.isTagFile, args[i], types[i], null, false));
+                }
+            }
+            call.append(')');
+            call.append(suffix);
+            return call.toString();
+        }
+
+        /**
+         * Coerces an argument of a direct function call at translation time,
+         * if it is a literal that the EL coercion rules convert to the
+         * parameter type without depending on the runtime.
+         *
+         * @param arg  The EL expression for the argument, as ${...}
+         * @param type The type of the parameter
+         * @return the Java source for the coerced literal, or null if the
+         *         argument must be evaluated at runtime
+         */
+        private String literalArgument(String arg, Class<?> type) {
+            Object value = ELParser.parseLiteral(
+                    arg.substring(2, arg.length() - 1));
+            if (value == ELParser.NOT_A_LITERAL) {
+                return null;
+            }
+            if (type == String.class) {
+                return quote(value == null ? "" : value.toString());
+            } else if (type == Object.class) {
+                if (value == null) {
+                    return "null";
+                } else if (value instanceof String) {
+                    return quote((String) value);
+                } else if (value instanceof Boolean) {
+                    return "java.lang.Boolean." + (((Boolean) value)
+                            .booleanValue() ? "TRUE" : "FALSE");
+                } else if (value instanceof Long) {
+                    return "java.lang.Long.valueOf(" + value + "L)";
+                }
+                return "java.lang.Double.valueOf(" + value + ")";
+            } else if (type == boolean.class) {
+                if (value instanceof Boolean) {
+                    return value.toString();
+                }
+            } else if (type == int.class || type == long.class) {
+                if (value instanceof Long) {
+                    long l = ((Long) value).longValue();
+                    if (type == long.class) {
+                        return l + "L";
+                    } else if (l >= Integer.MIN_VALUE &&
+                            l <= Integer.MAX_VALUE) {
+                        return Long.toString(l);
+                    }
+                }
+            } else if (type == double.class) {
+                if (value instanceof Long || value instanceof Double) {
+                    return Double.toString(((Number) value).doubleValue());
+                }
+            }
+            return null;
+        }
+
         /**
          * Generate code to create a map for the alias variables
          *
@@ -3452,6 +3619,11 @@ class Generator {
             out.printMultiLn(charArrayBuffer.toString());
         }
 
+        // Append deferred expression declarations
+        if (expressionBuffer != null) {
+            out.printMultiLn(expressionBuffer.toString());
+        }
+
         // Close the class definition
         out.popIndent();
         out.printil("}");
@@ -3509,6 +3681,7 @@ class Generator {
         this.out = out;
         methodsBuffered = new ArrayList<GenBuffer>();
         charArrayBuffer = null;
+        expressionBuffer = null;
         err = compiler.getErrorDispatcher();
         ctxt = compiler.getCompilationContext();
         fragmentHelperClass = new FragmentHelperClass("Helper");
@@ -3843,10 +4016,6 @@ class Generator {
      */
     private void generateSetJspContext(TagInfo tagInfo) {
 
-        boolean nestedSeen = false;
-        boolean atBeginSeen = false;
-        boolean atEndSeen = false;
-
         // Determine if there are any aliases
         boolean aliasSeen = false;
         TagVariableInfo[] tagVars = tagInfo.getTagVariableInfos();
@@ -3858,6 +4027,15 @@ class Generator {
             }
         }
 
+        // The variable names are the same for every invocation of the tag
+        String nestedVars = generateVariableNames(tagVars,
+                VariableInfo.NESTED, "_jspx_nested_vars");
+        String atBeginVars = generateVariableNames(tagVars,
+                VariableInfo.AT_BEGIN, "_jspx_at_begin_vars");
+        String atEndVars = generateVariableNames(tagVars,
+                VariableInfo.AT_END, "_jspx_at_end_vars");
+        out.println();
+
         if (aliasSeen) {
             out.printil("public void setJspContext(javax.servlet.jsp.JspContext ctx, java.util.Map aliasMap) {");
         } else {
@@ -3865,46 +4043,13 @@ class Generator {
         }
         out.pushIndent();
         out.printil("super.setJspContext(ctx);");
-        out.printil("java.util.ArrayList _jspx_nested = null;");
-        out.printil("java.util.ArrayList _jspx_at_begin = null;");
-        out.printil("java.util.ArrayList _jspx_at_end = null;");
-
-        for (int i = 0; i < tagVars.length; i++) {
-
-            switch (tagVars[i].getScope()) {
-            case VariableInfo.NESTED:
-                if (!nestedSeen) {
-                    out.printil("_jspx_nested = new java.util.ArrayList();");
-                    nestedSeen = true;
-                }
-                out.printin("_jspx_nested.add(");
-                break;
-
-            case VariableInfo.AT_BEGIN:
-                if (!atBeginSeen) {
-                    out.printil("_jspx_at_begin = new java.util.ArrayList();");
-                    atBeginSeen = true;
-                }
-                out.printin("_jspx_at_begin.add(");
-                break;
-
-            case VariableInfo.AT_END:
-                if (!atEndSeen) {
-                    out.printil("_jspx_at_end = new java.util.ArrayList();");
-                    atEndSeen = true;
-                }
-                out.printin("_jspx_at_end.add(");
-                break;
-            } // switch
-
-            out.print(quote(tagVars[i].getNameGiven()));
-            out.println(");");
-        }
-        if (aliasSeen) {
-            out.printil("this.jspContext = new org.apache.jasper.runtime.JspContextWrapper(ctx, _jspx_nested, _jspx_at_begin, _jspx_at_end, aliasMap);");
-        } else {
-            out.printil("this.jspContext = new org.apache.jasper.runtime.JspContextWrapper(ctx, _jspx_nested, _jspx_at_begin, _jspx_at_end, null);");
-        }
+        out.printin("this.jspContext = new org.apache.jasper.runtime.JspContextWrapper(ctx, ");
+        out.print(nestedVars);
+        out.print(", ");
+        out.print(atBeginVars);
+        out.print(", ");
+        out.print(atEndVars);
+        out.println(aliasSeen ? ", aliasMap);" : ", null);");
         out.popIndent();
         out.printil("}");
         out.println();
@@ -3915,6 +4060,38 @@ class Generator {
         out.printil("}");
     }
 
+    /*
+     * Generates a static array holding the names of the tag file variables
+     * with the given scope.
+     *
+     * @return the name of the array, or a null expression if there are no
+     *         such variables
+     */
+    private String generateVariableNames(TagVariableInfo[] tagVars,
+            int scope, String arrayName) {
+
+        boolean seen = false;
+        for (int i = 0; i < tagVars.length; i++) {
+            if (tagVars[i].getScope() != scope) {
+                continue;
+            }
+            if (!seen) {
+                out.printin("private static final String[] ");
+                out.print(arrayName);
+                out.print(" = { ");
+                seen = true;
+            } else {
+                out.print(", ");
+            }
+            out.print(quote(tagVars[i].getNameGiven()));
+        }
+        if (!seen) {
+            return "(String[]) null";
+        }
+        out.println(" };");
+        return arrayName;
+    }
+
     /*
      * Generates implementation of
      * javax.servlet.jsp.tagext.DynamicAttributes.setDynamicAttribute() method,
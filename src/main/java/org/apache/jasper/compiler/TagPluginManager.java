@@ -16,12 +16,19 @@
  */
 package org.apache.jasper.compiler;
 
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 
 import javax.servlet.ServletContext;
 
@@ -29,11 +36,19 @@ import org.apache.jasper.Constants;
 import org.apache.jasper.JasperException;
 import org.apache.jasper.compiler.tagplugin.TagPlugin;
 import org.apache.jasper.compiler.tagplugin.TagPluginContext;
+import org.apache.jasper.compiler.tagplugin.TagPluginProvider;
 import org.apache.jasper.xmlparser.ParserUtils;
 import org.apache.jasper.xmlparser.TreeNode;
 
 /**
  * Manages tag plugin optimizations.
+ * <p>
+ * The plugins of an application are merged from, in increasing order of
+ * precedence, the {@link TagPluginProvider}s, every
+ * META-INF/org.apache.jasper/tagPlugins.xml file, which includes the built-in
+ * JSTL plugins, and /WEB-INF/tagPlugins.xml. A later source only overrides
+ * the plugins of the tag handler classes it lists, so /WEB-INF/tagPlugins.xml
+ * adds to the built-in plugins rather than replacing them.
  * @author Kin-man Chung
  */
 public class TagPluginManager {
@@ -43,8 +58,36 @@ public class TagPluginManager {
     private static final String TAG_PLUGINS_XML = "/WEB-INF/tagPlugins.xml";
     private static final String TAG_PLUGINS_ROOT_ELEM = "tag-plugins";
 
-    private boolean initialized = false;
-    private HashMap<String, TagPlugin> tagPlugins = null;
+    /*
+     * Parameter types of the attribute setters of each tag handler class,
+     * keyed by attribute name.
+     */
+    private static final ClassValue<Map<String, Class<?>>> SETTER_TYPES =
+            new ClassValue<Map<String, Class<?>>>() {
+        @Override
+        protected Map<String, Class<?>> computeValue(Class<?> type) {
+            Map<String, Class<?>> result = new HashMap<String, Class<?>>();
+            try {
+                PropertyDescriptor[] pd = Introspector.getBeanInfo(
+                        type).getPropertyDescriptors();
+                for (int i = 0; i < pd.length; i++) {
+                    if (pd[i].getWriteMethod() != null) {
+                        result.put(pd[i].getName(),
+                                pd[i].getWriteMethod().getParameterTypes()[0]);
+                    }
+                }
+            } catch (IntrospectionException e) {
+                // Reported when the tag handler itself is generated
+            }
+            return Collections.unmodifiableMap(result);
+        }
+    };
+
+    /*
+     * Loaded once and then shared, read-only, by the compilations of all
+     * pages of the application.
+     */
+    private volatile Map<String, TagPlugin> tagPlugins = null;
     private ServletContext ctxt;
 
     public TagPluginManager(ServletContext ctxt) {
@@ -54,19 +97,42 @@ public class TagPluginManager {
     public void apply(Node.Nodes page, ErrorDispatcher err, PageInfo pageInfo)
             throws JasperException {
 
-        init(err);
-        if (tagPlugins == null || tagPlugins.size() == 0) {
+        Map<String, TagPlugin> plugins = init(err);
+        if (plugins.size() == 0) {
             return;
         }
 
-        page.visit(new NodeVisitor(this, pageInfo));
+        page.visit(new NodeVisitor(plugins, pageInfo));
     }
 
-    private void init(ErrorDispatcher err) throws JasperException {
-        if (initialized)
-            return;
+    private Map<String, TagPlugin> init(ErrorDispatcher err)
+            throws JasperException {
+        Map<String, TagPlugin> result = tagPlugins;
+        if (result == null) {
+            synchronized (this) {
+                result = tagPlugins;
+                if (result == null) {
+                    result = loadTagPlugins(err);
+                    tagPlugins = result;
+                }
+            }
+        }
+        return result;
+    }
 
-        tagPlugins = new HashMap<String, TagPlugin>();
+    private Map<String, TagPlugin> loadTagPlugins(ErrorDispatcher err)
+            throws JasperException {
+
+        HashMap<String, TagPlugin> plugins = new HashMap<String, TagPlugin>();
+
+        try {
+            for (TagPluginProvider provider : ServiceLoader.load(
+                    TagPluginProvider.class, ctxt.getClassLoader())) {
+                plugins.putAll(provider.getTagPlugins());
+            }
+        } catch (ServiceConfigurationError e) {
+            throw new JasperException(e);
+        }
 
         Enumeration<URL> urls = null;
         try {
@@ -81,7 +147,7 @@ public class TagPluginManager {
             InputStream is = null;
             try {
                 is = url.openStream();
-                loadTagPlugins(err, is);
+                loadTagPlugins(err, is, plugins);
             } catch(IOException ioe) {
                 throw new JasperException(ioe);
             } finally {
@@ -99,7 +165,7 @@ public class TagPluginManager {
         try {
             is = ctxt.getResourceAsStream(TAG_PLUGINS_XML);
             if (is != null) {
-                loadTagPlugins(err, is);
+                loadTagPlugins(err, is, plugins);
             }
         } finally {
             try {
@@ -111,12 +177,12 @@ public class TagPluginManager {
             }
         }
 
-        initialized = true;
+        return plugins;
     }
 
 
-    private void loadTagPlugins(ErrorDispatcher err, InputStream is)
-            throws JasperException {
+    private void loadTagPlugins(ErrorDispatcher err, InputStream is,
+            Map<String, TagPlugin> plugins) throws JasperException {
 
         String blockExternalString = ctxt.getInitParameter(
                 Constants.XML_BLOCK_EXTERNAL_INIT_PARAM);
@@ -136,34 +202,32 @@ public class TagPluginManager {
                          TAG_PLUGINS_ROOT_ELEM);
         }
 
-        tagPlugins = new HashMap<String, TagPlugin>();
         Iterator<TreeNode> pluginList = root.findChildren("tag-plugin");
         while (pluginList.hasNext()) {
             TreeNode pluginNode = pluginList.next();
             TreeNode tagClassNode = pluginNode.findChild("tag-class");
             if (tagClassNode == null) {
                 // Error
-                return;
+                continue;
             }
             String tagClass = tagClassNode.getBody().trim();
             TreeNode pluginClassNode = pluginNode.findChild("plugin-class");
             if (pluginClassNode == null) {
                 // Error
-                return;
+                continue;
             }
 
-            String pluginClassStr = pluginClassNode.getBody();
+            String pluginClassStr = pluginClassNode.getBody().trim();
             TagPlugin tagPlugin = null;
             try {
                 Class<?> pluginClass =
                         ctxt.getClassLoader().loadClass(pluginClassStr);
                 tagPlugin = (TagPlugin) pluginClass.newInstance();
-                tagPlugins.put(tagClass, tagPlugin);
+                plugins.put(tagClass, tagPlugin);
             } catch (Exception e) {
                 throw new JasperException(e);
             }
         }
-        initialized = true;
     }
 
     /**
@@ -172,8 +236,9 @@ public class TagPluginManager {
      *
      * The given custom tag node will be manipulated by the plugin.
      */
-    private void invokePlugin(Node.CustomTag n, PageInfo pageInfo) {
-        TagPlugin tagPlugin = tagPlugins.get(n.getTagHandlerClass().getName());
+    private static void invokePlugin(Map<String, TagPlugin> plugins,
+            Node.CustomTag n, PageInfo pageInfo) {
+        TagPlugin tagPlugin = plugins.get(n.getTagHandlerClass().getName());
         if (tagPlugin == null) {
             return;
         }
@@ -184,17 +249,17 @@ public class TagPluginManager {
     }
 
     private static class NodeVisitor extends Node.Visitor {
-        private final TagPluginManager manager;
+        private final Map<String, TagPlugin> plugins;
         private final PageInfo pageInfo;
 
-        public NodeVisitor(TagPluginManager manager, PageInfo pageInfo) {
-            this.manager = manager;
+        public NodeVisitor(Map<String, TagPlugin> plugins, PageInfo pageInfo) {
+            this.plugins = plugins;
             this.pageInfo = pageInfo;
         }
 
         @Override
         public void visit(Node.CustomTag n) throws JasperException {
-            manager.invokePlugin(n, pageInfo);
+            invokePlugin(plugins, n, pageInfo);
             visitBody(n);
         }
     }
@@ -240,6 +305,30 @@ public class TagPluginManager {
             return node.getChildInfo().isScriptless();
         }
 
+        @Override
+        public boolean isBodyEmpty() {
+            Node.Nodes body = node.getBody();
+            return body == null || body.size() == 0;
+        }
+
+        @Override
+        public boolean hasAncestorTag(String tagHandlerClass) {
+            Node parent = node.getParent();
+            while (parent != null) {
+                if (parent instanceof Node.CustomTag) {
+                    Class<?> c = ((Node.CustomTag) parent).getTagHandlerClass();
+                    while (c != null) {
+                        if (c.getName().equals(tagHandlerClass)) {
+                            return true;
+                        }
+                        c = c.getSuperclass();
+                    }
+                }
+                parent = parent.getParent();
+            }
+            return false;
+        }
+
         @Override
         public boolean isConstantAttribute(String attribute) {
             Node.JspAttribute attr = getNodeAttribute(attribute);
@@ -261,6 +350,14 @@ public class TagPluginManager {
             return getNodeAttribute(attribute) != null;
         }
 
+        @Override
+        public Class<?> getAttributeSetterType(String attribute) {
+            if (getNodeAttribute(attribute) == null) {
+                return null;
+            }
+            return SETTER_TYPES.get(node.getTagHandlerClass()).get(attribute);
+        }
+
         @Override
         public String getTemporaryVariableName() {
             return node.getRoot().nextTemporaryVariableName();
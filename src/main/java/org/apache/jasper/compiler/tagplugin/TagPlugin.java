@@ -23,7 +23,8 @@ package org.apache.jasper.compiler.tagplugin;
  * specify the Java codes to be generated when a tag is invoked.
  *
  * An implementation of this interface must be registered in a file
- * named "tagPlugins.xml" under WEB-INF.
+ * named "tagPlugins.xml" under WEB-INF or under META-INF/org.apache.jasper
+ * in a JAR, or be supplied by a {@link TagPluginProvider}.
  */
 
 public interface TagPlugin {
@@ -30,12 +30,36 @@ public interface TagPluginContext {
      */
     boolean isScriptless();
 
+    /**
+     * @return true if the tag has no body, i.e. it is an empty element or
+     *         its start tag is immediately followed by its end tag.
+     */
+    boolean isBodyEmpty();
+
+    /**
+     * @param tagHandlerClass The fully qualified name of a tag handler class
+     * @return true if the tag is nested, at any depth, within a custom tag
+     *         whose tag handler is, or extends, the given class.
+     */
+    boolean hasAncestorTag(String tagHandlerClass);
+
     /**
      * @param attribute Name of the attribute
      * @return true if the attribute is specified in the tag
      */
     boolean isAttributeSpecified(String attribute);
 
+    /**
+     * Get the parameter type of the tag handler's setter for an attribute,
+     * which is the type the attribute value is coerced to by
+     * {@link #generateAttribute(String)}. This is not the type of the value
+     * of the attribute expression, which is only known at runtime.
+     * @param attribute Name of the attribute
+     * @return the parameter type of the attribute setter, or null if the
+     *         attribute is not specified in the tag or has no setter
+     */
+    Class<?> getAttributeSetterType(String attribute);
+
     /**
      * @return A unique temporary variable name that the plugin can use.
      */
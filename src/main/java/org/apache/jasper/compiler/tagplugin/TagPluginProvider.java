@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jasper.compiler.tagplugin;
+
+import java.util.Map;
+
+/**
+ * Supplies tag plugins from a JAR without a tagPlugins.xml file.
+ * Implementations are discovered with {@link java.util.ServiceLoader}, using
+ * the web application class loader, and so must be listed in a file named
+ * "META-INF/services/org.apache.jasper.compiler.tagplugin.TagPluginProvider".
+ *
+ * Plugins registered in tagPlugins.xml files take precedence over the ones
+ * supplied by providers for the same tag handler class.
+ */
+
+public interface TagPluginProvider {
+
+    /**
+     * @return the plugins supplied by this provider, keyed by the fully
+     *         qualified name of the tag handler class each plugin replaces.
+     */
+    Map<String, TagPlugin> getTagPlugins();
+}
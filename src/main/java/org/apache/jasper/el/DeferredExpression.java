@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.el;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.el.MethodExpression;
+import javax.el.ValueExpression;
+
+/**
+ * Holds the ValueExpression or MethodExpression for a tag attribute of a
+ * page, so that it is created once for the page class instead of on every
+ * invocation of the tag.
+ * <p>
+ * An expression is created with the bindings of the VariableMapper that are
+ * current at the time, such as those of the deferred attributes of a tag
+ * file. An expression is therefore only shared if it is created, or used,
+ * with a context that maps no variables, and is created anew otherwise.
+ */
+public final class DeferredExpression {
+
+    private final String mark;
+    private final String expression;
+    private final Class<?> expectedType;
+    // null for a value expression
+    private final Class<?>[] paramTypes;
+
+    private volatile Object cached;
+
+    /**
+     * Creates the holder of a value expression.
+     *
+     * @param mark         The location of the attribute, for error messages
+     * @param expression   The text of the expression
+     * @param expectedType The type the value is coerced to
+     */
+    public DeferredExpression(String mark, String expression,
+            Class<?> expectedType) {
+        this(mark, expression, expectedType, null);
+    }
+
+    /**
+     * Creates the holder of a method expression.
+     *
+     * @param mark         The location of the attribute, for error messages
+     * @param expression   The text of the expression
+     * @param expectedType The type the result of the method is coerced to
+     * @param paramTypes   The parameter types of the method
+     */
+    public DeferredExpression(String mark, String expression,
+            Class<?> expectedType, Class<?>[] paramTypes) {
+        this.mark = mark;
+        this.expression = expression;
+        this.expectedType = expectedType;
+        this.paramTypes = paramTypes;
+    }
+
+    public ValueExpression getValueExpression(ExpressionFactory factory,
+            ELContext context) {
+        if (!ELContextImpl.isEmpty(context.getVariableMapper())) {
+            return createValueExpression(factory, context);
+        }
+        ValueExpression result = (ValueExpression) cached;
+        if (result == null) {
+            result = createValueExpression(factory, context);
+            cached = result;
+        }
+        return result;
+    }
+
+    public MethodExpression getMethodExpression(ExpressionFactory factory,
+            ELContext context) {
+        if (!ELContextImpl.isEmpty(context.getVariableMapper())) {
+            return createMethodExpression(factory, context);
+        }
+        MethodExpression result = (MethodExpression) cached;
+        if (result == null) {
+            result = createMethodExpression(factory, context);
+            cached = result;
+        }
+        return result;
+    }
+
+    private ValueExpression createValueExpression(ExpressionFactory factory,
+            ELContext context) {
+        return new JspValueExpression(mark, factory.createValueExpression(
+                context, expression, expectedType));
+    }
+
+    private MethodExpression createMethodExpression(ExpressionFactory factory,
+            ELContext context) {
+        return new JspMethodExpression(mark, factory.createMethodExpression(
+                context, expression, expectedType, paramTypes));
+    }
+}
@@ -31,6 +31,7 @@ import javax.el.MapELResolver;
 import javax.el.ResourceBundleELResolver;
 import javax.el.ValueExpression;
 import javax.el.VariableMapper;
+import javax.servlet.jsp.JspContext;
 
 import org.apache.jasper.Constants;
 
@@ -63,11 +64,19 @@ public class ELContextImpl extends ELContext {
         @Override
         public ValueExpression setVariable(String variable,
                 ValueExpression expression) {
+            if (expression == null) {
+                // Tag files restore a variable that was not mapped to null
+                return vars == null ? null : vars.remove(variable);
+            }
             if (vars == null)
                 vars = new HashMap<String, ValueExpression>();
             return vars.put(variable, expression);
         }
 
+        private boolean isEmpty() {
+            return vars == null || vars.isEmpty();
+        }
+
     }
 
     private static final ELResolver DefaultResolver;
@@ -85,12 +94,15 @@ public class ELContextImpl extends ELContext {
         }
     }
 
-    private final ELResolver resolver;
+    private ELResolver resolver;
 
     private FunctionMapper functionMapper = NullFunctionMapper;
 
     private VariableMapper variableMapper;
 
+    // Set once a context object other than the JspContext has been stored
+    private boolean foreignContext = false;
+
     public ELContextImpl() {
         this(getDefaultResolver());
     }
@@ -125,6 +137,63 @@ public class ELContextImpl extends ELContext {
         this.variableMapper = variableMapper;
     }
 
+    @Override
+    public void putContext(@SuppressWarnings("rawtypes") Class key,
+            Object contextObject) {
+        if (key != JspContext.class) {
+            foreignContext = true;
+        }
+        super.putContext(key, contextObject);
+    }
+
+    /**
+     * Context objects can not be removed from an ELContext, so this context
+     * can only be reused if nothing other than the JspContext was stored in
+     * it.
+     *
+     * @return <code>true</code> if {@link #recycle()} can restore this
+     *         context to the state it was created in
+     */
+    public boolean isRecyclable() {
+        return !foreignContext;
+    }
+
+    /**
+     * Resets the state of this context for its reuse with the same
+     * JspContext. The resolver is released too, so a recycled context holds
+     * no reference to the application it was last used by, and must be given
+     * a new one with {@link #setELResolver(ELResolver)} before it is used
+     * again.
+     */
+    public void recycle() {
+        setPropertyResolved(false);
+        setLocale(null);
+        this.resolver = null;
+        this.functionMapper = NullFunctionMapper;
+        this.variableMapper = null;
+    }
+
+    /**
+     * Sets the resolver of a context that has been recycled.
+     *
+     * @param resolver The resolver of the application the context is used
+     *                 for
+     */
+    public void setELResolver(ELResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * @param variableMapper The variable mapper of a context
+     * @return <code>true</code> if it is the variable mapper of an
+     *         ELContextImpl and maps no variables, so that expressions created
+     *         with it do not depend on it
+     */
+    static boolean isEmpty(VariableMapper variableMapper) {
+        return variableMapper instanceof VariableMapperImpl &&
+                ((VariableMapperImpl) variableMapper).isEmpty();
+    }
+
     public static ELResolver getDefaultResolver() {
         if (Constants.IS_SECURITY_ENABLED) {
             CompositeELResolver defaultResolver = new CompositeELResolver();
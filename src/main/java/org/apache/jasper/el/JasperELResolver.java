@@ -18,6 +18,8 @@
 package org.apache.jasper.el;
 
 import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
 
 import javax.el.ArrayELResolver;
 import javax.el.BeanELResolver;
@@ -38,6 +40,29 @@ import javax.servlet.jsp.el.ScopedAttributeELResolver;
  */
 public class JasperELResolver extends CompositeELResolver {
 
+    /*
+     * The Map, ResourceBundle, List, Array and Bean resolvers each decide
+     * whether they apply from the class of the base object alone, so at
+     * most one of them can resolve a given base. This maps the class of the
+     * base to the position of that resolver among the five.
+     */
+    private static final ClassValue<Integer> BASE_RESOLVER =
+            new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            if (Map.class.isAssignableFrom(type)) {
+                return Integer.valueOf(0);
+            } else if (ResourceBundle.class.isAssignableFrom(type)) {
+                return Integer.valueOf(1);
+            } else if (List.class.isAssignableFrom(type)) {
+                return Integer.valueOf(2);
+            } else if (type.isArray()) {
+                return Integer.valueOf(3);
+            }
+            return Integer.valueOf(4);
+        }
+    };
+
     private int size;
     private ELResolver[] resolvers;
     private final int appResolversSize;
@@ -96,8 +121,22 @@ public class JasperELResolver extends CompositeELResolver {
             // bean)
             start = index + 5;
         } else {
-            // skip implicit resolver only
-            start = 1;
+            // skip implicit resolver and call app resolvers
+            int index = 1 /* implicit */ + appResolversSize;
+            for (int i = 1; i < index; i++) {
+                result = resolvers[i].getValue(context, base, property);
+                if (context.isPropertyResolved()) {
+                    return result;
+                }
+            }
+            // call the only collection-based or bean resolver that can
+            // resolve this base
+            result = resolvers[index + BASE_RESOLVER.get(base.getClass())
+                    .intValue()].getValue(context, base, property);
+            if (context.isPropertyResolved()) {
+                return result;
+            }
+            start = index + 5;
         }
 
         for (int i = start; i < size; i++) {
@@ -101,14 +101,35 @@ public class JspApplicationContextImpl implements JspApplicationContext {
         ctx.putContext(JspContext.class, context);
 
         // alert all ELContextListeners
-        ELContextEvent event = new ELContextEvent(ctx);
-        for (int i = 0; i < this.contextListeners.size(); i++) {
-            this.contextListeners.get(i).contextCreated(event);
+        if (!this.contextListeners.isEmpty()) {
+            ELContextEvent event = new ELContextEvent(ctx);
+            for (int i = 0; i < this.contextListeners.size(); i++) {
+                this.contextListeners.get(i).contextCreated(event);
+            }
         }
 
         return ctx;
     }
 
+    /**
+     * Returns an ELContext for the given JspContext, reusing a context
+     * recycled by an earlier request unless an ELContextListener expects to
+     * be told of the creation of a new one.
+     *
+     * @param context  The JspContext
+     * @param recycled A recycled context for the JspContext, may be
+     *                 <code>null</code>
+     * @return the ELContext to use
+     */
+    public ELContextImpl createELContext(JspContext context,
+            ELContextImpl recycled) {
+        if (recycled == null || !this.contextListeners.isEmpty()) {
+            return createELContext(context);
+        }
+        recycled.setELResolver(this.createELResolver());
+        return recycled;
+    }
+
     private ELResolver createELResolver() {
         this.instantiated = true;
         if (this.resolver == null) {
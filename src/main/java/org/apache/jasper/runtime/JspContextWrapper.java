@@ -19,10 +19,9 @@ package org.apache.jasper.runtime;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 
@@ -44,7 +43,6 @@ import javax.servlet.jsp.el.ELException;
 import javax.servlet.jsp.el.ExpressionEvaluator;
 import javax.servlet.jsp.el.VariableResolver;
 import javax.servlet.jsp.tagext.BodyContent;
-import javax.servlet.jsp.tagext.VariableInfo;
 
 import org.apache.jasper.compiler.Localizer;
 
@@ -65,20 +63,29 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
     // Invoking JSP context
     private PageContext invokingJspCtxt;
 
-    private transient HashMap<String, Object> pageAttributes;
-
-    // ArrayList of NESTED scripting variables
-    private ArrayList<String> nestedVars;
+    /*
+     * The page scope of a tag file rarely holds more than a handful of
+     * attributes, so it is kept in parallel arrays that are searched
+     * linearly and only allocated once the first attribute is set.
+     */
+    private transient String[] pageAttributeNames;
+    private transient Object[] pageAttributeValues;
+    private transient int pageAttributeCount;
 
-    // ArrayList of AT_BEGIN scripting variables
-    private ArrayList<String> atBeginVars;
+    // Names of the NESTED scripting variables and of their aliases
+    private final String[] nestedVars;
+    private final String[] nestedAliases;
 
-    // ArrayList of AT_END scripting variables
-    private ArrayList<String> atEndVars;
+    // Names of the AT_BEGIN scripting variables and of their aliases
+    private final String[] atBeginVars;
+    private final String[] atBeginAliases;
 
-    private Map<String,String> aliases;
+    // Names of the AT_END scripting variables and of their aliases
+    private final String[] atEndVars;
+    private final String[] atEndAliases;
 
-    private HashMap<String, Object> originalNestedVars;
+    // Values of the NESTED variables in the invoking JSP context
+    private final Object[] originalNestedVars;
 
     private ServletContext servletContext = null;
 
@@ -89,6 +96,29 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
     public JspContextWrapper(JspContext jspContext,
             ArrayList<String> nestedVars, ArrayList<String> atBeginVars,
             ArrayList<String> atEndVars, Map<String,String> aliases) {
+        this(jspContext, toArray(nestedVars), toArray(atBeginVars),
+                toArray(atEndVars), aliases);
+    }
+
+    /**
+     * Creates the wrapper used by a tag file. The generated tag handlers pass
+     * arrays that are shared by all their invocations, so they must not be
+     * modified.
+     *
+     * @param jspContext  The invoking JSP context
+     * @param nestedVars  The names of the NESTED variables, or
+     *                    <code>null</code> if there are none
+     * @param atBeginVars The names of the AT_BEGIN variables, or
+     *                    <code>null</code> if there are none
+     * @param atEndVars   The names of the AT_END variables, or
+     *                    <code>null</code> if there are none
+     * @param aliases     Maps variable names to the names they are exposed
+     *                    under in the invoking JSP context, may be
+     *                    <code>null</code>
+     */
+    public JspContextWrapper(JspContext jspContext, String[] nestedVars,
+            String[] atBeginVars, String[] atEndVars,
+            Map<String,String> aliases) {
         this.invokingJspCtxt = (PageContext) jspContext;
         if (jspContext instanceof JspContextWrapper) {
             rootJspCtxt = ((JspContextWrapper)jspContext).rootJspCtxt;
@@ -97,13 +127,16 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
             rootJspCtxt = invokingJspCtxt;
         }
         this.nestedVars = nestedVars;
+        this.nestedAliases = findAliases(nestedVars, aliases);
         this.atBeginVars = atBeginVars;
+        this.atBeginAliases = findAliases(atBeginVars, aliases);
         this.atEndVars = atEndVars;
-        this.pageAttributes = new HashMap<String, Object>(16);
-        this.aliases = aliases;
+        this.atEndAliases = findAliases(atEndVars, aliases);
 
         if (nestedVars != null) {
-            this.originalNestedVars = new HashMap<String, Object>(nestedVars.size());
+            this.originalNestedVars = new Object[nestedVars.length];
+        } else {
+            this.originalNestedVars = null;
         }
         syncBeginTagFile();
     }
@@ -123,7 +156,7 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
                     .getMessage("jsp.error.attribute.null_name"));
         }
 
-        return pageAttributes.get(name);
+        return getPageAttribute(name);
     }
 
     @Override
@@ -135,7 +168,7 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
         }
 
         if (scope == PAGE_SCOPE) {
-            return pageAttributes.get(name);
+            return getPageAttribute(name);
         }
 
         return rootJspCtxt.getAttribute(name, scope);
@@ -150,9 +183,9 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
         }
 
         if (value != null) {
-            pageAttributes.put(name, value);
+            setPageAttribute(name, value);
         } else {
-            removeAttribute(name, PAGE_SCOPE);
+            removePageAttribute(name);
         }
     }
 
@@ -166,9 +199,9 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
 
         if (scope == PAGE_SCOPE) {
             if (value != null) {
-                pageAttributes.put(name, value);
+                setPageAttribute(name, value);
             } else {
-                removeAttribute(name, PAGE_SCOPE);
+                removePageAttribute(name);
             }
         } else {
             rootJspCtxt.setAttribute(name, value, scope);
@@ -183,7 +216,7 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
                     .getMessage("jsp.error.attribute.null_name"));
         }
 
-        Object o = pageAttributes.get(name);
+        Object o = getPageAttribute(name);
         if (o == null) {
             o = rootJspCtxt.getAttribute(name, REQUEST_SCOPE);
             if (o == null) {
@@ -207,7 +240,7 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
                     .getMessage("jsp.error.attribute.null_name"));
         }
 
-        pageAttributes.remove(name);
+        removePageAttribute(name);
         rootJspCtxt.removeAttribute(name, REQUEST_SCOPE);
         if (getSession() != null) {
             rootJspCtxt.removeAttribute(name, SESSION_SCOPE);
@@ -224,7 +257,7 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
         }
 
         if (scope == PAGE_SCOPE) {
-            pageAttributes.remove(name);
+            removePageAttribute(name);
         } else {
             rootJspCtxt.removeAttribute(name, scope);
         }
@@ -238,7 +271,7 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
                     .getMessage("jsp.error.attribute.null_name"));
         }
 
-        if (pageAttributes.get(name) != null) {
+        if (getPageAttribute(name) != null) {
             return PAGE_SCOPE;
         } else {
             return rootJspCtxt.getAttributesScope(name);
@@ -248,7 +281,12 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
     @Override
     public Enumeration<String> getAttributeNamesInScope(int scope) {
         if (scope == PAGE_SCOPE) {
-            return Collections.enumeration(pageAttributes.keySet());
+            if (pageAttributeCount == 0) {
+                return Collections.enumeration(
+                        Collections.<String>emptyList());
+            }
+            return Collections.enumeration(Arrays.asList(Arrays.copyOf(
+                    pageAttributeNames, pageAttributeCount)));
         }
 
         return rootJspCtxt.getAttributeNamesInScope(scope);
@@ -259,6 +297,51 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
         invokingJspCtxt.release();
     }
 
+    private int indexOfPageAttribute(String name) {
+        for (int i = 0; i < pageAttributeCount; i++) {
+            if (name.equals(pageAttributeNames[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object getPageAttribute(String name) {
+        int i = indexOfPageAttribute(name);
+        return i == -1 ? null : pageAttributeValues[i];
+    }
+
+    private void setPageAttribute(String name, Object value) {
+        int i = indexOfPageAttribute(name);
+        if (i != -1) {
+            pageAttributeValues[i] = value;
+            return;
+        }
+        if (pageAttributeNames == null) {
+            pageAttributeNames = new String[8];
+            pageAttributeValues = new Object[8];
+        } else if (pageAttributeCount == pageAttributeNames.length) {
+            int capacity = pageAttributeCount * 2;
+            pageAttributeNames = Arrays.copyOf(pageAttributeNames, capacity);
+            pageAttributeValues = Arrays.copyOf(pageAttributeValues, capacity);
+        }
+        pageAttributeNames[pageAttributeCount] = name;
+        pageAttributeValues[pageAttributeCount] = value;
+        pageAttributeCount++;
+    }
+
+    private void removePageAttribute(String name) {
+        int i = indexOfPageAttribute(name);
+        if (i != -1) {
+            // Move the last attribute into the freed slot
+            int last = --pageAttributeCount;
+            pageAttributeNames[i] = pageAttributeNames[last];
+            pageAttributeValues[i] = pageAttributeValues[last];
+            pageAttributeNames[last] = null;
+            pageAttributeValues[last] = null;
+        }
+    }
+
     @Override
     public JspWriter getOut() {
         return rootJspCtxt.getOut();
@@ -382,55 +465,39 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
      * Synchronize variables before fragment invocation
      */
     public void syncBeforeInvoke() {
-        copyTagToPageScope(VariableInfo.NESTED);
-        copyTagToPageScope(VariableInfo.AT_BEGIN);
+        copyTagToPageScope(nestedVars, nestedAliases);
+        copyTagToPageScope(atBeginVars, atBeginAliases);
     }
 
     /**
      * Synchronize variables at end of tag file
      */
     public void syncEndTagFile() {
-        copyTagToPageScope(VariableInfo.AT_BEGIN);
-        copyTagToPageScope(VariableInfo.AT_END);
+        copyTagToPageScope(atBeginVars, atBeginAliases);
+        copyTagToPageScope(atEndVars, atEndAliases);
         restoreNestedVariables();
     }
 
     /**
-     * Copies the variables of the given scope from the virtual page scope of
-     * this JSP context wrapper to the page scope of the invoking JSP context.
+     * Copies the given variables from the virtual page scope of this JSP
+     * context wrapper to the page scope of the invoking JSP context.
      *
-     * @param scope
-     *            variable scope (one of NESTED, AT_BEGIN, or AT_END)
+     * @param vars
+     *            The names of the variables, may be <code>null</code>
+     * @param aliases
+     *            The names the variables are exposed under in the invoking
+     *            JSP context
      */
-    private void copyTagToPageScope(int scope) {
-        Iterator<String> iter = null;
-
-        switch (scope) {
-        case VariableInfo.NESTED:
-            if (nestedVars != null) {
-                iter = nestedVars.iterator();
-            }
-            break;
-        case VariableInfo.AT_BEGIN:
-            if (atBeginVars != null) {
-                iter = atBeginVars.iterator();
-            }
-            break;
-        case VariableInfo.AT_END:
-            if (atEndVars != null) {
-                iter = atEndVars.iterator();
-            }
-            break;
+    private void copyTagToPageScope(String[] vars, String[] aliases) {
+        if (vars == null) {
+            return;
         }
-
-        while ((iter != null) && iter.hasNext()) {
-            String varName = iter.next();
-            Object obj = getAttribute(varName);
-            varName = findAlias(varName);
+        for (int i = 0; i < vars.length; i++) {
+            Object obj = getPageAttribute(vars[i]);
             if (obj != null) {
-                invokingJspCtxt.setAttribute(varName, obj);
+                invokingJspCtxt.setAttribute(aliases[i], obj);
             } else {
-                invokingJspCtxt.removeAttribute(varName, PAGE_SCOPE);
+                invokingJspCtxt.removeAttribute(aliases[i], PAGE_SCOPE);
             }
         }
     }
@@ -441,14 +508,9 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
      */
     private void saveNestedVariables() {
         if (nestedVars != null) {
-            Iterator<String> iter = nestedVars.iterator();
-            while (iter.hasNext()) {
-                String varName = iter.next();
-                varName = findAlias(varName);
-                Object obj = invokingJspCtxt.getAttribute(varName);
-                if (obj != null) {
-                    originalNestedVars.put(varName, obj);
-                }
+            for (int i = 0; i < nestedVars.length; i++) {
+                originalNestedVars[i] =
+                        invokingJspCtxt.getAttribute(nestedAliases[i]);
             }
         }
     }
@@ -458,39 +520,58 @@ public class JspContextWrapper extends PageContext implements VariableResolver {
      */
     private void restoreNestedVariables() {
         if (nestedVars != null) {
-            Iterator<String> iter = nestedVars.iterator();
-            while (iter.hasNext()) {
-                String varName = iter.next();
-                varName = findAlias(varName);
-                Object obj = originalNestedVars.get(varName);
+            for (int i = 0; i < nestedVars.length; i++) {
+                Object obj = originalNestedVars[i];
                 if (obj != null) {
-                    invokingJspCtxt.setAttribute(varName, obj);
+                    invokingJspCtxt.setAttribute(nestedAliases[i], obj);
                 } else {
-                    invokingJspCtxt.removeAttribute(varName, PAGE_SCOPE);
+                    invokingJspCtxt.removeAttribute(nestedAliases[i],
+                            PAGE_SCOPE);
                 }
             }
         }
     }
 
     /**
-     * Checks to see if the given variable name is used as an alias, and if so,
-     * returns the variable name for which it is used as an alias.
+     * Looks up the names the given variables are exposed under in the
+     * invoking JSP context.
      *
-     * @param varName
-     *            The variable name to check
-     * @return The variable name for which varName is used as an alias, or
-     *         varName if it is not being used as an alias
+     * @param vars
+     *            The variable names, may be <code>null</code>
+     * @param aliases
+     *            Maps variable names to their aliases, may be
+     *            <code>null</code>
+     * @return The alias of each variable, or the variable name itself if it
+     *         has no alias
      */
-    private String findAlias(String varName) {
-
-        if (aliases == null)
-            return varName;
+    private static String[] findAliases(String[] vars,
+            Map<String,String> aliases) {
+
+        if (vars == null || aliases == null)
+            return vars;
+
+        String[] result = vars;
+        for (int i = 0; i < vars.length; i++) {
+            String alias = aliases.get(vars[i]);
+            if (alias != null) {
+                if (result == vars) {
+                    result = vars.clone();
+                }
+                result[i] = alias;
+            }
+        }
+        return result;
+    }
 
-        String alias = aliases.get(varName);
-        if (alias == null) {
-            return varName;
+    private static String[] toArray(ArrayList<String> vars) {
+        if (vars == null) {
+            return null;
         }
-        return alias;
+        return vars.toArray(new String[vars.size()]);
+    }
+
+    PageContext getRootPageContext() {
+        return rootJspCtxt;
     }
 
     @Override
@@ -18,10 +18,12 @@ package org.apache.jasper.runtime;
 
 import java.beans.PropertyEditor;
 import java.beans.PropertyEditorManager;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.util.Enumeration;
 
 import javax.servlet.RequestDispatcher;
@@ -41,6 +43,7 @@ import org.apache.jasper.compiler.Localizer;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.InstanceManager;
+import org.apache.tomcat.util.buf.B2CConverter;
 
 /**
  * Bunch of util methods that are used by code generated for useBean,
@@ -363,6 +366,17 @@ public class JspRuntimeLibrary {
     public static String toString(char c) {
         return Character.toString(c);
     }
+
+    /**
+     * Applies the EL coercion of a String to a String, for the results of EL
+     * functions that are called directly from the generated code.
+     *
+     * @param s The function result
+     * @return the result or the empty string if it is <code>null</code>
+     */
+    public static String emptyIfNull(String s) {
+        return (s == null) ? "" : s;
+    }
     // __end toStringMethod
 
 
@@ -920,63 +934,151 @@ public class JspRuntimeLibrary {
             return "null";
         }
 
-        if (enc == null) {
-            enc = "ISO-8859-1";        // The default request encoding
+        // Most names and values need no encoding at all
+        int i = 0;
+        int len = s.length();
+        while (i < len && isSafeChar(s.charAt(i))) {
+            i++;
+        }
+        if (i == len) {
+            return s;
         }
 
-        StringBuilder out = new StringBuilder(s.length());
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        OutputStreamWriter writer = null;
-        try {
-            writer = new OutputStreamWriter(buf, enc);
-        } catch (java.io.UnsupportedEncodingException ex) {
-            // Use the default encoding?
-            writer = new OutputStreamWriter(buf);
+        StringBuilder out = new StringBuilder(len + 16);
+        out.append(s, 0, i);
+        URLEncode(s, i, enc, out);
+        return out.toString();
+    }
+
+
+    /**
+     * URL encodes a string, based on the supplied character encoding, and
+     * appends the result to the given buffer. The encoding is the same as
+     * that performed by {@link #URLEncode(String, String)}.
+     * @param s The String to be URL encoded.
+     * @param enc The character encoding
+     * @param out The buffer to which the URL encoded String is appended
+     */
+    public static void URLEncode(String s, String enc, StringBuilder out) {
+        if (s == null) {
+            out.append("null");
+            return;
         }
+        URLEncode(s, 0, enc, out);
+    }
+
+
+    private static void URLEncode(String s, int start, String enc, StringBuilder out) {
 
-        for (int i = 0; i < s.length(); i++) {
-            int c = s.charAt(i);
+        Charset charset = getURLEncodeCharset(enc);
+        boolean utf8 = charset == B2CConverter.UTF_8;
+        boolean iso88591 = charset == B2CConverter.ISO_8859_1;
+
+        int len = s.length();
+        int i = start;
+        while (i < len) {
+            char c = s.charAt(i);
             if (c == ' ') {
                 out.append('+');
+                i++;
             } else if (isSafeChar(c)) {
-                out.append((char)c);
+                out.append(c);
+                i++;
+            } else if (utf8) {
+                int cp = c;
+                if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    cp = Character.toCodePoint(c, s.charAt(i + 1));
+                    i += 2;
+                } else {
+                    i++;
+                    if (Character.isSurrogate(c)) {
+                        // Malformed input is replaced as the encoder would
+                        appendHex(out, '?');
+                        continue;
+                    }
+                }
+                if (cp < 0x80) {
+                    appendHex(out, cp);
+                } else if (cp < 0x800) {
+                    appendHex(out, 0xC0 | (cp >> 6));
+                    appendHex(out, 0x80 | (cp & 0x3F));
+                } else if (cp < 0x10000) {
+                    appendHex(out, 0xE0 | (cp >> 12));
+                    appendHex(out, 0x80 | ((cp >> 6) & 0x3F));
+                    appendHex(out, 0x80 | (cp & 0x3F));
+                } else {
+                    appendHex(out, 0xF0 | (cp >> 18));
+                    appendHex(out, 0x80 | ((cp >> 12) & 0x3F));
+                    appendHex(out, 0x80 | ((cp >> 6) & 0x3F));
+                    appendHex(out, 0x80 | (cp & 0x3F));
+                }
+            } else if (iso88591 && !Character.isSurrogate(c)) {
+                appendHex(out, c <= 0xFF ? c : '?');
+                i++;
             } else {
-                // convert to external encoding before hex conversion
-                try {
-                    writer.write(c);
-                    writer.flush();
-                } catch(IOException e) {
-                    buf.reset();
-                    continue;
+                // Convert the run of characters that need encoding to the
+                // external encoding in one go before hex conversion. The
+                // Charset caches its encoder per thread.
+                int end = i + 1;
+                while (end < len) {
+                    char next = s.charAt(end);
+                    if (next == ' ' || isSafeChar(next)) {
+                        break;
+                    }
+                    end++;
                 }
-                byte[] ba = buf.toByteArray();
-                for (int j = 0; j < ba.length; j++) {
-                    out.append('%');
-                    // Converting each byte in the buffer
-                    out.append(Character.forDigit((ba[j]>>4) & 0xf, 16));
-                    out.append(Character.forDigit(ba[j] & 0xf, 16));
+                ByteBuffer bb = charset.encode(CharBuffer.wrap(s, i, end));
+                while (bb.hasRemaining()) {
+                    appendHex(out, bb.get());
                 }
-                buf.reset();
+                i = end;
             }
         }
-        return out.toString();
     }
 
-    private static boolean isSafeChar(int c) {
-        if (c >= 'a' && c <= 'z') {
-            return true;
+
+    private static Charset getURLEncodeCharset(String enc) {
+        if (enc == null) {
+            return B2CConverter.ISO_8859_1;   // The default request encoding
+        }
+        try {
+            return B2CConverter.getCharset(enc);
+        } catch (UnsupportedEncodingException ex) {
+            // Use the default encoding?
+            return Charset.defaultCharset();
         }
-        if (c >= 'A' && c <= 'Z') {
-            return true;
+    }
+
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static void appendHex(StringBuilder out, int b) {
+        out.append('%');
+        out.append(HEX_DIGITS[(b >> 4) & 0xf]);
+        out.append(HEX_DIGITS[b & 0xf]);
+    }
+
+
+    private static final boolean[] SAFE_CHARS = new boolean[128];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            SAFE_CHARS[c] = true;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            SAFE_CHARS[c] = true;
         }
-        if (c >= '0' && c <= '9') {
-            return true;
+        for (int c = '0'; c <= '9'; c++) {
+            SAFE_CHARS[c] = true;
         }
-        if (c == '-' || c == '_' || c == '.' || c == '!' ||
-            c == '~' || c == '*' || c == '\'' || c == '(' || c == ')') {
-            return true;
+        for (char c : "-_.!~*'()".toCharArray()) {
+            SAFE_CHARS[c] = true;
         }
-        return false;
+    }
+
+    private static boolean isSafeChar(int c) {
+        return c < 128 && SAFE_CHARS[c];
     }
 
 
@@ -23,9 +23,11 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 
 import javax.el.ELContext;
 import javax.el.ExpressionFactory;
@@ -73,6 +75,37 @@ public class PageContextImpl extends PageContext {
 
     private static final JspFactory jspf = JspFactory.getDefaultFactory();
 
+    /*
+     * When set, the names that findAttribute() finds in no scope are
+     * remembered until an attribute of the same name is set or removed
+     * through this page context, or another resource is included or
+     * forwarded to through it, as <jsp:include> and <jsp:forward> do. This
+     * saves the lookup of the request, session and application scopes when
+     * the same missing attribute is used again while the page is rendered,
+     * but may only be enabled if those scopes are not otherwise changed
+     * during a render, such as with ServletRequest.setAttribute(), by a
+     * resource included with a RequestDispatcher the page obtained itself,
+     * or from another thread.
+     */
+    private static final boolean CACHE_MISSING_ATTRIBUTES =
+        Boolean.parseBoolean(System.getProperty(
+                "org.apache.jasper.runtime.PageContextImpl.CACHE_MISSING_ATTRIBUTES",
+                "false"));
+
+    // Page-scope slots of the implicit objects
+    private static final int SLOT_OUT = 0;
+    private static final int SLOT_REQUEST = 1;
+    private static final int SLOT_RESPONSE = 2;
+    private static final int SLOT_SESSION = 3;
+    private static final int SLOT_PAGE = 4;
+    private static final int SLOT_CONFIG = 5;
+    private static final int SLOT_PAGECONTEXT = 6;
+    private static final int SLOT_APPLICATION = 7;
+    private static final int IMPLICIT_SLOTS = 8;
+
+    private static final String[] IMPLICIT_NAMES = { OUT, REQUEST, RESPONSE,
+            SESSION, PAGE, CONFIG, PAGECONTEXT, APPLICATION };
+
     private BodyContentImpl[] outs;
 
     private int depth;
@@ -88,9 +121,17 @@ public class PageContextImpl extends PageContext {
 
     private String errorPageURL;
 
-    // page-scope attributes
+    /*
+     * Page-scope attributes. The implicit objects, which are registered for
+     * every request, are kept in fixed slots (see implicitSlot()) and all
+     * other attributes in a map that is only created when first needed.
+     */
+    private transient Object[] implicitAttributes;
     private transient HashMap<String, Object> attributes;
 
+    // Names found in no scope, see CACHE_MISSING_ATTRIBUTES
+    private transient HashSet<String> missingAttributes;
+
     // per-request state
     private transient ServletRequest request;
 
@@ -100,6 +141,9 @@ public class PageContextImpl extends PageContext {
 
     private transient ELContextImpl elContext;
 
+    // Set when elContext has been recycled and not yet used again
+    private transient boolean elContextRecycled;
+
     private boolean isIncluded;
 
 
@@ -113,7 +157,7 @@ public class PageContextImpl extends PageContext {
      */
     PageContextImpl() {
         this.outs = new BodyContentImpl[0];
-        this.attributes = new HashMap<String, Object>(16);
+        this.implicitAttributes = new Object[IMPLICIT_SLOTS];
         this.depth = -1;
     }
 
@@ -162,17 +206,14 @@ public class PageContextImpl extends PageContext {
         this.out = baseOut;
 
         // register names/values as per spec
-        setAttribute(OUT, this.out);
-        setAttribute(REQUEST, request);
-        setAttribute(RESPONSE, response);
-
-        if (session != null)
-            setAttribute(SESSION, session);
-
-        setAttribute(PAGE, servlet);
-        setAttribute(CONFIG, config);
-        setAttribute(PAGECONTEXT, this);
-        setAttribute(APPLICATION, context);
+        implicitAttributes[SLOT_OUT] = this.out;
+        implicitAttributes[SLOT_REQUEST] = request;
+        implicitAttributes[SLOT_RESPONSE] = response;
+        implicitAttributes[SLOT_SESSION] = session;
+        implicitAttributes[SLOT_PAGE] = servlet;
+        implicitAttributes[SLOT_CONFIG] = config;
+        implicitAttributes[SLOT_PAGECONTEXT] = this;
+        implicitAttributes[SLOT_APPLICATION] = context;
 
         isIncluded = request.getAttribute(
                 RequestDispatcher.INCLUDE_SERVLET_PATH) != null;
@@ -201,14 +242,30 @@ public class PageContextImpl extends PageContext {
             config = null;
             context = null;
             applicationContext = null;
-            elContext = null;
+            // Keep the ELContext for the next use of this page context
+            if (elContext != null && elContext.isRecyclable()) {
+                if (!elContextRecycled) {
+                    elContext.recycle();
+                    elContextRecycled = true;
+                }
+            } else {
+                elContext = null;
+            }
             errorPageURL = null;
             request = null;
             response = null;
             depth = -1;
             baseOut.recycle();
             session = null;
-            attributes.clear();
+            for (int i = 0; i < IMPLICIT_SLOTS; i++) {
+                implicitAttributes[i] = null;
+            }
+            if (attributes != null) {
+                attributes.clear();
+            }
+            if (missingAttributes != null) {
+                missingAttributes.clear();
+            }
             for (BodyContentImpl body: outs) {
                 body.recycle();
             }
@@ -238,9 +295,71 @@ public class PageContextImpl extends PageContext {
     }
 
     private Object doGetAttribute(String name) {
+        return getPageAttribute(name);
+    }
+
+    /**
+     * Maps the name of an implicit object to its slot in the page scope.
+     *
+     * @param name The attribute name
+     * @return the slot, or <code>-1</code> if the name is not that of an
+     *         implicit object
+     */
+    private static int implicitSlot(String name) {
+        switch (name) {
+        case OUT:
+            return SLOT_OUT;
+        case REQUEST:
+            return SLOT_REQUEST;
+        case RESPONSE:
+            return SLOT_RESPONSE;
+        case SESSION:
+            return SLOT_SESSION;
+        case PAGE:
+            return SLOT_PAGE;
+        case CONFIG:
+            return SLOT_CONFIG;
+        case PAGECONTEXT:
+            return SLOT_PAGECONTEXT;
+        case APPLICATION:
+            return SLOT_APPLICATION;
+        default:
+            return -1;
+        }
+    }
+
+    private Object getPageAttribute(String name) {
+        int slot = implicitSlot(name);
+        if (slot != -1) {
+            return implicitAttributes[slot];
+        }
+        if (attributes == null) {
+            return null;
+        }
         return attributes.get(name);
     }
 
+    private void setPageAttribute(String name, Object o) {
+        int slot = implicitSlot(name);
+        if (slot != -1) {
+            implicitAttributes[slot] = o;
+            return;
+        }
+        if (attributes == null) {
+            attributes = new HashMap<String, Object>();
+        }
+        attributes.put(name, o);
+    }
+
+    private void removePageAttribute(String name) {
+        int slot = implicitSlot(name);
+        if (slot != -1) {
+            implicitAttributes[slot] = null;
+        } else if (attributes != null) {
+            attributes.remove(name);
+        }
+    }
+
     @Override
     public Object getAttribute(final String name, final int scope) {
 
@@ -266,7 +385,7 @@ public class PageContextImpl extends PageContext {
     private Object doGetAttribute(String name, int scope) {
         switch (scope) {
         case PAGE_SCOPE:
-            return attributes.get(name);
+            return getPageAttribute(name);
 
         case REQUEST_SCOPE:
             return request.getAttribute(name);
@@ -309,7 +428,7 @@ public class PageContextImpl extends PageContext {
 
     private void doSetAttribute(String name, Object attribute) {
         if (attribute != null) {
-            attributes.put(name, attribute);
+            setPageAttribute(name, attribute);
         } else {
             removeAttribute(name, PAGE_SCOPE);
         }
@@ -339,9 +458,12 @@ public class PageContextImpl extends PageContext {
 
     private void doSetAttribute(String name, Object o, int scope) {
         if (o != null) {
+            if (scope != PAGE_SCOPE) {
+                attributeChanged(name);
+            }
             switch (scope) {
             case PAGE_SCOPE:
-                attributes.put(name, o);
+                setPageAttribute(name, o);
                 break;
 
             case REQUEST_SCOPE:
@@ -389,9 +511,12 @@ public class PageContextImpl extends PageContext {
     }
 
     private void doRemoveAttribute(String name, int scope) {
+        if (scope != PAGE_SCOPE) {
+            attributeChanged(name);
+        }
         switch (scope) {
         case PAGE_SCOPE:
-            attributes.remove(name);
+            removePageAttribute(name);
             break;
 
         case REQUEST_SCOPE:
@@ -437,7 +562,7 @@ public class PageContextImpl extends PageContext {
     }
 
     private int doGetAttributeScope(String name) {
-        if (attributes.get(name) != null)
+        if (getPageAttribute(name) != null)
             return PAGE_SCOPE;
 
         if (request.getAttribute(name) != null)
@@ -462,6 +587,14 @@ public class PageContextImpl extends PageContext {
     @Override
     public Object findAttribute(final String name) {
         if (SecurityUtil.isPackageProtectionEnabled()) {
+            // Page scope is held by this object, so a hit there needs no
+            // privileged action
+            if (name != null) {
+                Object o = getPageAttribute(name);
+                if (o != null) {
+                    return o;
+                }
+            }
             return AccessController.doPrivileged(
                     new PrivilegedAction<Object>() {
                 @Override
@@ -486,11 +619,30 @@ public class PageContextImpl extends PageContext {
 
     private Object doFindAttribute(String name) {
 
-        Object o = attributes.get(name);
+        Object o = getPageAttribute(name);
         if (o != null)
             return o;
 
-        o = request.getAttribute(name);
+        if (CACHE_MISSING_ATTRIBUTES) {
+            if (missingAttributes != null && missingAttributes.contains(name)) {
+                return null;
+            }
+            o = doFindScopedAttribute(name);
+            if (o == null) {
+                if (missingAttributes == null) {
+                    missingAttributes = new HashSet<String>();
+                }
+                missingAttributes.add(name);
+            }
+            return o;
+        }
+
+        return doFindScopedAttribute(name);
+    }
+
+    private Object doFindScopedAttribute(String name) {
+
+        Object o = request.getAttribute(name);
         if (o != null)
             return o;
 
@@ -508,6 +660,26 @@ public class PageContextImpl extends PageContext {
         return context.getAttribute(name);
     }
 
+    /*
+     * Called before an attribute of the request, session or application
+     * scope is set or removed through this page context.
+     */
+    private void attributeChanged(String name) {
+        if (missingAttributes != null) {
+            missingAttributes.remove(name);
+        }
+    }
+
+    /*
+     * Called before the request is passed to another resource, which may
+     * change any attribute.
+     */
+    private void attributesChanged() {
+        if (missingAttributes != null) {
+            missingAttributes.clear();
+        }
+    }
+
     @Override
     public Enumeration<String> getAttributeNamesInScope(final int scope) {
         if (SecurityUtil.isPackageProtectionEnabled()) {
@@ -526,7 +698,17 @@ public class PageContextImpl extends PageContext {
     private Enumeration<String> doGetAttributeNamesInScope(int scope) {
         switch (scope) {
         case PAGE_SCOPE:
-            return Collections.enumeration(attributes.keySet());
+            ArrayList<String> names = new ArrayList<String>(IMPLICIT_SLOTS +
+                    (attributes == null ? 0 : attributes.size()));
+            for (int i = 0; i < IMPLICIT_SLOTS; i++) {
+                if (implicitAttributes[i] != null) {
+                    names.add(IMPLICIT_NAMES[i]);
+                }
+            }
+            if (attributes != null) {
+                names.addAll(attributes.keySet());
+            }
+            return Collections.enumeration(names);
 
         case REQUEST_SCOPE:
             return request.getAttributeNames();
@@ -654,6 +836,7 @@ public class PageContextImpl extends PageContext {
     @Override
     public void include(String relativeUrlPath) throws ServletException,
             IOException {
+        attributesChanged();
         JspRuntimeLibrary
                 .include(request, response, relativeUrlPath, out, true);
     }
@@ -686,6 +869,7 @@ public class PageContextImpl extends PageContext {
 
     private void doInclude(String relativeUrlPath, boolean flush)
             throws ServletException, IOException {
+        attributesChanged();
         JspRuntimeLibrary.include(request, response, relativeUrlPath, out,
                 flush);
     }
@@ -724,6 +908,7 @@ public class PageContextImpl extends PageContext {
 
     private void doForward(String relativeUrlPath) throws ServletException,
             IOException {
+        attributesChanged();
 
         // JSP.4.5 If the buffer was flushed, throw IllegalStateException
         try {
@@ -778,7 +963,7 @@ public class PageContextImpl extends PageContext {
 
         // Update the value of the "out" attribute in the page scope
         // attribute namespace of this PageContext
-        setAttribute(OUT, out);
+        implicitAttributes[SLOT_OUT] = out;
 
         return outs[depth];
     }
@@ -794,7 +979,7 @@ public class PageContextImpl extends PageContext {
 
         // Update the value of the "out" attribute in the page scope
         // attribute namespace of this PageContext
-        setAttribute(OUT, out);
+        implicitAttributes[SLOT_OUT] = out;
 
         return out;
     }
@@ -939,7 +1124,7 @@ public class PageContextImpl extends PageContext {
             final Class<?> expectedType, final PageContext pageContext,
             final ProtectedFunctionMapper functionMap, final boolean escape)
             throws ELException {
-        final ExpressionFactory exprFactory = jspf.getJspApplicationContext(pageContext.getServletContext()).getExpressionFactory();
+        final ExpressionFactory exprFactory = getExpressionFactory(pageContext);
         ELContext ctx = pageContext.getELContext();
         ELContextImpl ctxImpl;
         if (ctx instanceof ELContextWrapper) {
@@ -947,15 +1132,44 @@ public class PageContextImpl extends PageContext {
         } else {
             ctxImpl = (ELContextImpl) ctx;
         }
-        ctxImpl.setFunctionMapper(functionMap);
+        // Functions are bound to the expression when it is created, so the
+        // mapper only needs replacing for expressions that call functions
+        if (functionMap != null && ctxImpl.getFunctionMapper() != functionMap) {
+            ctxImpl.setFunctionMapper(functionMap);
+        }
         ValueExpression ve = exprFactory.createValueExpression(ctx, expression, expectedType);
         return ve.getValue(ctx);
     }
 
+    /*
+     * The page context already refers to the application context, so there
+     * is no need to look it up through the ServletContext attributes.
+     */
+    private static ExpressionFactory getExpressionFactory(
+            PageContext pageContext) {
+        PageContext pc = pageContext;
+        if (pc instanceof JspContextWrapper) {
+            pc = ((JspContextWrapper) pc).getRootPageContext();
+        }
+        if (pc instanceof PageContextImpl) {
+            JspApplicationContextImpl application =
+                    ((PageContextImpl) pc).applicationContext;
+            if (application != null) {
+                return application.getExpressionFactory();
+            }
+        }
+        return jspf.getJspApplicationContext(
+                pageContext.getServletContext()).getExpressionFactory();
+    }
+
     @Override
     public ELContext getELContext() {
         if (this.elContext == null) {
             this.elContext = this.applicationContext.createELContext(this);
+        } else if (this.elContextRecycled) {
+            this.elContext = this.applicationContext.createELContext(this,
+                    this.elContext);
+            this.elContextRecycled = false;
         }
         return this.elContext;
     }
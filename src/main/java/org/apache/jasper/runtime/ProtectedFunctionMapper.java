@@ -18,7 +18,7 @@
 package org.apache.jasper.runtime;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.Arrays;
 
 import javax.servlet.jsp.el.FunctionMapper;
 
@@ -33,10 +33,16 @@ import javax.servlet.jsp.el.FunctionMapper;
 public final class ProtectedFunctionMapper extends javax.el.FunctionMapper
         implements FunctionMapper {
 
-    /**
-     * Maps "prefix:name" to java.lang.Method objects.
+    /*
+     * The prefix, local name and java.lang.Method of each mapped function, at
+     * the same index. The functions are mapped once, when the page class is
+     * initialized, and a page uses few enough functions for a linear search
+     * to beat hashing the prefix and name on every resolution.
      */
-    private HashMap<String,Method> fnmap = null;
+    private String[] prefixes = null;
+    private String[] localNames = null;
+    private Method[] methods = null;
+    private int size = 0;
 
     /**
      * If there is only one function in the map, this is the Method for it.
@@ -57,7 +63,9 @@ public final class ProtectedFunctionMapper extends javax.el.FunctionMapper
      */
     public static ProtectedFunctionMapper getInstance() {
         ProtectedFunctionMapper funcMapper = new ProtectedFunctionMapper();
-        funcMapper.fnmap = new HashMap<String,Method>();
+        funcMapper.prefixes = new String[4];
+        funcMapper.localNames = new String[4];
+        funcMapper.methods = new Method[4];
         return funcMapper;
     }
 
@@ -87,7 +95,25 @@ public final class ProtectedFunctionMapper extends javax.el.FunctionMapper
                             + e.getMessage());
         }
 
-        this.fnmap.put(fnQName, method);
+        int colon = fnQName.indexOf(':');
+        String prefix = (colon < 0) ? "" : fnQName.substring(0, colon);
+        String localName = fnQName.substring(colon + 1);
+        for (int i = 0; i < size; i++) {
+            if (prefixes[i].equals(prefix) && localNames[i].equals(localName)) {
+                methods[i] = method;
+                return;
+            }
+        }
+        if (size == methods.length) {
+            int capacity = size * 2;
+            prefixes = Arrays.copyOf(prefixes, capacity);
+            localNames = Arrays.copyOf(localNames, capacity);
+            methods = Arrays.copyOf(methods, capacity);
+        }
+        prefixes[size] = prefix;
+        localNames[size] = localName;
+        methods[size] = method;
+        size++;
     }
 
     /**
@@ -133,8 +159,14 @@ public final class ProtectedFunctionMapper extends javax.el.FunctionMapper
      */
     @Override
     public Method resolveFunction(String prefix, String localName) {
-        if (this.fnmap != null) {
-            return this.fnmap.get(prefix + ":" + localName);
+        if (this.methods != null) {
+            for (int i = 0; i < size; i++) {
+                if (localNames[i].equals(localName) &&
+                        prefixes[i].equals(prefix)) {
+                    return methods[i];
+                }
+            }
+            return null;
         }
         return theMethod;
     }
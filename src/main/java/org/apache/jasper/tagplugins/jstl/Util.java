@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.Locale;
 
 import javax.servlet.ServletOutputStream;
@@ -188,47 +189,102 @@ public class Util {
      * @return escaped data
      */
     public static String escapeXml(String buffer) {
-        String result = escapeXml(buffer.toCharArray(), buffer.length());
-        if (result == null) {
+        int special = indexOfSpecial(buffer, 0);
+        // no xml escaping was necessary
+        if (special == buffer.length()) {
             return buffer;
+        }
+        StringWriter escapedBuffer = new StringWriter(buffer.length() + 5);
+        try {
+            writeEscapedXml(buffer, special, escapedBuffer);
+        } catch (IOException e) {
+            // Not possible with a StringWriter
+            throw new IllegalStateException(e);
+        }
+        return escapedBuffer.toString();
+    }
+
+    /**
+     * Performs the same substring replacements as {@link #escapeXml(String)}.
+     *
+     * @param arrayBuffer Data to escape
+     * @param length      The number of characters in the buffer to escape
+     * @return the escaped data or <code>null</code> if no escaping was
+     *         necessary
+     */
+    public static String escapeXml(char[] arrayBuffer, int length) {
+        String buffer = new String(arrayBuffer, 0, length);
+        String result = escapeXml(buffer);
+        if (result == buffer) {
+            return null;
         } else {
             return result;
         }
     }
 
-    @SuppressWarnings("null") // escapedBuffer cannot be null
-    public static String escapeXml(char[] arrayBuffer, int length) {
+    /**
+     * Performs the same substring replacements as {@link #escapeXml(String)}
+     * but writes the result directly to the given writer. Runs of characters
+     * that do not need escaping are written as a single range so that no
+     * intermediate String or StringBuilder is created.
+     *
+     * @param buffer Data to escape
+     * @param out    The writer to write the escaped data to
+     * @throws IOException If an error occurs writing to the writer
+     */
+    public static void writeEscapedXml(String buffer, Writer out) throws IOException {
+        writeEscapedXml(buffer, indexOfSpecial(buffer, 0), out);
+    }
+
+    /**
+     * Performs the same substring replacements as {@link #escapeXml(String)}
+     * but writes the result directly to the given writer.
+     *
+     * @param arrayBuffer Data to escape
+     * @param length      The number of characters in the buffer to escape
+     * @param out         The writer to write the escaped data to
+     * @throws IOException If an error occurs writing to the writer
+     */
+    public static void writeEscapedXml(char[] arrayBuffer, int length, Writer out)
+            throws IOException {
+        writeEscapedXml(new String(arrayBuffer, 0, length), out);
+    }
+
+    /*
+     * Writes the escaped form of buffer to out, given the index of the first
+     * character that needs escaping. Each run of characters that does not
+     * need escaping is written as a single range.
+     */
+    private static void writeEscapedXml(String buffer, int special, Writer out)
+            throws IOException {
+        int length = buffer.length();
         int start = 0;
-        StringBuilder escapedBuffer = null;
-
-        for (int i = 0; i < length; i++) {
-            char c = arrayBuffer[i];
-            if (c <= HIGHEST_SPECIAL) {
-                char[] escaped = specialCharactersRepresentation[c];
-                if (escaped != null) {
-                    // create StringBuilder to hold escaped xml string
-                    if (start == 0) {
-                        escapedBuffer = new StringBuilder(length + 5);
-                    }
-                    // add unescaped portion
-                    if (start < i) {
-                        escapedBuffer.append(arrayBuffer,start,i-start);
-                    }
-                    start = i + 1;
-                    // add escaped xml
-                    escapedBuffer.append(escaped);
-                }
+        while (special < length) {
+            if (start < special) {
+                out.write(buffer, start, special - start);
             }
+            out.write(specialCharactersRepresentation[buffer.charAt(special)]);
+            start = special + 1;
+            special = indexOfSpecial(buffer, start);
         }
-        // no xml escaping was necessary
-        if (start == 0) {
-            return null;
-        }
-        // add rest of unescaped portion
         if (start < length) {
-            escapedBuffer.append(arrayBuffer,start,length-start);
+            out.write(buffer, start, length - start);
         }
-        return escapedBuffer.toString();
+    }
+
+    /*
+     * Returns the index of the first character at or after from that needs
+     * escaping, or the length of buffer if there is none.
+     */
+    private static int indexOfSpecial(String buffer, int from) {
+        int length = buffer.length();
+        for (int i = from; i < length; i++) {
+            char c = buffer.charAt(i);
+            if (c <= HIGHEST_SPECIAL && specialCharactersRepresentation[c] != null) {
+                return i;
+            }
+        }
+        return length;
     }
 
     /**
@@ -14,15 +14,43 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
-
 package org.apache.jasper.tagplugins.jstl.core;
 
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.StringTokenizer;
+
 import org.apache.jasper.compiler.tagplugin.TagPlugin;
 import org.apache.jasper.compiler.tagplugin.TagPluginContext;
 
 public final class ForEach implements TagPlugin {
 
+    /*
+     * The kinds of items the generated code iterates over. Arrays and random
+     * access lists are accessed by index so that no Iterator is allocated and
+     * primitive array elements are only boxed when they are exposed as the
+     * var attribute.
+     */
+    public static final int KIND_NONE = 0;
+    public static final int KIND_ITERATOR = 1;
+    public static final int KIND_LIST = 2;
+    public static final int KIND_OBJECT_ARRAY = 3;
+    public static final int KIND_BOOLEAN_ARRAY = 4;
+    public static final int KIND_BYTE_ARRAY = 5;
+    public static final int KIND_CHAR_ARRAY = 6;
+    public static final int KIND_SHORT_ARRAY = 7;
+    public static final int KIND_INT_ARRAY = 8;
+    public static final int KIND_LONG_ARRAY = 9;
+    public static final int KIND_FLOAT_ARRAY = 10;
+    public static final int KIND_DOUBLE_ARRAY = 11;
+
+    private static final String FOR_EACH = ForEach.class.getName();
+
     private boolean hasVar, hasBegin, hasEnd, hasStep;
 
     @Override
@@ -63,11 +91,12 @@ public final class ForEach implements TagPlugin {
         }
 
         // If var is specified and the body contains an EL, then sycn
-        // the var attribute
+        // the var attribute. As for the tag handler, the current index is
+        // exposed as an Integer.
         if (hasVar /* && ctxt.hasEL() */) {
             ctxt.generateJavaSource("_jspx_page_context.setAttribute(");
             ctxt.generateAttribute("var");
-            ctxt.generateJavaSource(", String.valueOf(" + index + "));");
+            ctxt.generateJavaSource(", Integer.valueOf(" + index + "));");
         }
         ctxt.generateBody();
         ctxt.generateJavaSource("}");
@@ -76,18 +105,31 @@ public final class ForEach implements TagPlugin {
     /**
      * Generate codes for Collections
      * The pseudo code is:
+     * <pre>
+     * kind = kindOf(items);
+     * iter = (kind == KIND_ITERATOR) ? toIterator(items) : null;
+     * len = (iter == null) ? length(items, kind) : 0;
+     * pos = begin; skip begin elements of iter;
+     * while (iter != null ? iter.hasNext() : pos &lt; len) {
+     *     if (pos &gt; end) break;
+     *     var = (iter != null) ? iter.next() : get(items, kind, pos);
+     *     body;
+     *     skip step - 1 elements of iter; pos += step;
+     * }
+     * </pre>
+     * The body is only generated once as it may declare methods of its own.
+     * The kind of the items is only known when the page runs, so it is
+     * determined once per loop and each element is then read through
+     * {@link #get(Object, int, int)}, which switches on it. Elements of
+     * primitive arrays are boxed when they are exposed as var, as they are by
+     * the tag handler. Literal items are handled by
+     * {@link #doLiteral(TagPluginContext, String, String, String)}.
      */
     private void doCollection(TagPluginContext ctxt) {
 
         ctxt.generateImport("java.util.*");
-        generateIterators(ctxt);
-
-        String itemsV = ctxt.getTemporaryVariableName();
-        ctxt.generateJavaSource("Object " + itemsV + "= ");
-        ctxt.generateAttribute("items");
-        ctxt.generateJavaSource(";");
 
-        String indexV=null, beginV=null, endV=null, stepV=null;
+        String beginV=null, endV=null, stepV=null;
         if (hasBegin) {
             beginV = ctxt.getTemporaryVariableName();
             ctxt.generateJavaSource("int " + beginV + " = ");
@@ -95,8 +137,6 @@ public final class ForEach implements TagPlugin {
             ctxt.generateJavaSource(";");
         }
         if (hasEnd) {
-            indexV = ctxt.getTemporaryVariableName();
-            ctxt.generateJavaSource("int " + indexV + " = 0;");
             endV = ctxt.getTemporaryVariableName();
             ctxt.generateJavaSource("int " + endV + " = ");
             ctxt.generateAttribute("end");
@@ -109,246 +149,266 @@ public final class ForEach implements TagPlugin {
             ctxt.generateJavaSource(";");
         }
 
+        if (ctxt.isConstantAttribute("items")) {
+            doLiteral(ctxt, beginV, endV, stepV);
+            return;
+        }
+
+        String itemsV = ctxt.getTemporaryVariableName();
+        ctxt.generateJavaSource("Object " + itemsV + "= ");
+        ctxt.generateAttribute("items");
+        ctxt.generateJavaSource(";");
+
+        String kindV = ctxt.getTemporaryVariableName();
         String iterV = ctxt.getTemporaryVariableName();
-        ctxt.generateJavaSource("Iterator " + iterV + " = null;");
-        // Object[]
-        ctxt.generateJavaSource("if (" + itemsV + " instanceof Object[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((Object[])" + itemsV + ");");
-        // boolean[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof boolean[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((boolean[])" + itemsV + ");");
-        // byte[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof byte[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((byte[])" + itemsV + ");");
-        // char[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof char[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((char[])" + itemsV + ");");
-        // short[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof short[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((short[])" + itemsV + ");");
-        // int[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof int[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((int[])" + itemsV + ");");
-        // long[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof long[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((long[])" + itemsV + ");");
-        // float[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof float[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((float[])" + itemsV + ");");
-        // double[]
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof double[])");
-        ctxt.generateJavaSource(iterV + "=toIterator((double[])" + itemsV + ");");
-
-        // Collection
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof Collection)");
-        ctxt.generateJavaSource(iterV + "=((Collection)" + itemsV + ").iterator();");
-
-        // Iterator
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof Iterator)");
-        ctxt.generateJavaSource(iterV + "=(Iterator)" + itemsV + ";");
-
-        // Enumeration
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof Enumeration)");
-        ctxt.generateJavaSource(iterV + "=toIterator((Enumeration)" + itemsV + ");");
-
-        // Map
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof Map)");
-        ctxt.generateJavaSource(iterV + "=((Map)" + itemsV + ").entrySet().iterator();");
-
-        // String
-        ctxt.generateJavaSource("else if (" + itemsV + " instanceof String)");
-        ctxt.generateJavaSource(iterV + "=toIterator(new StringTokenizer((String)" + itemsV + ", \",\"));");
-
-        // Not null
-        ctxt.generateJavaSource("if (" + iterV + " != null) {");
+        String lenV = ctxt.getTemporaryVariableName();
+        String posV = ctxt.getTemporaryVariableName();
+
+        ctxt.generateJavaSource("int " + kindV + " = " + FOR_EACH +
+                ".kindOf(" + itemsV + ");");
+        ctxt.generateJavaSource("java.util.Iterator " + iterV + " = (" +
+                kindV + " == " + FOR_EACH + ".KIND_ITERATOR) ? " + FOR_EACH +
+                ".toIterator(" + itemsV + ") : null;");
+        ctxt.generateJavaSource("int " + lenV + " = (" + iterV + " == null) ? " +
+                FOR_EACH + ".length(" + itemsV + ", " + kindV + ") : 0;");
+        ctxt.generateJavaSource("int " + posV + " = 0;");
 
         if (hasBegin) {
+            ctxt.generateJavaSource(posV + " = " + beginV + ";");
             String tV = ctxt.getTemporaryVariableName();
-            ctxt.generateJavaSource("for (int " + tV + "=" + beginV + ";" +
-                    tV + ">0 && " + iterV + ".hasNext(); " +
+            ctxt.generateJavaSource("if (" + iterV + " != null) for (int " + tV +
+                    "=" + beginV + ";" + tV + ">0 && " + iterV + ".hasNext(); " +
                     tV + "--)");
             ctxt.generateJavaSource(iterV + ".next();");
         }
 
-        ctxt.generateJavaSource("while (" + iterV + ".hasNext()){");
+        ctxt.generateJavaSource("while (" + iterV + " != null ? " + iterV +
+                ".hasNext() : " + posV + " < " + lenV + "){");
+        if (hasEnd) {
+            ctxt.generateJavaSource("if(" + posV + ">" + endV + ")");
+            ctxt.generateJavaSource("break;");
+        }
         if (hasVar) {
             ctxt.generateJavaSource("_jspx_page_context.setAttribute(");
             ctxt.generateAttribute("var");
-            ctxt.generateJavaSource(", " + iterV + ".next());");
+            ctxt.generateJavaSource(", " + iterV + " != null ? " + iterV +
+                    ".next() : " + FOR_EACH + ".get(" + itemsV + ", " + kindV +
+                    ", " + posV + "));");
+        } else {
+            ctxt.generateJavaSource("if (" + iterV + " != null) " + iterV +
+                    ".next();");
         }
 
         ctxt.generateBody();
 
         if (hasStep) {
             String tV = ctxt.getTemporaryVariableName();
-            ctxt.generateJavaSource("for (int " + tV + "=" + stepV + "-1;" +
-                    tV + ">0 && " + iterV + ".hasNext(); " +
+            ctxt.generateJavaSource("if (" + iterV + " != null) for (int " + tV +
+                    "=" + stepV + "-1;" + tV + ">0 && " + iterV + ".hasNext(); " +
                     tV + "--)");
             ctxt.generateJavaSource(iterV + ".next();");
+            ctxt.generateJavaSource(posV + "+=" + stepV + ";");
         }
-        if (hasEnd) {
-            if (hasStep) {
-                ctxt.generateJavaSource(indexV + "+=" + stepV + ";");
-            }
-            else {
-                ctxt.generateJavaSource(indexV + "++;");
-            }
-            if (hasBegin) {
-                ctxt.generateJavaSource("if(" + beginV + "+" + indexV +
-                        ">"+ endV + ")");
-            }
-            else {
-                ctxt.generateJavaSource("if(" + indexV + ">" + endV + ")");
-            }
-            ctxt.generateJavaSource("break;");
+        else {
+            ctxt.generateJavaSource(posV + "++;");
         }
         ctxt.generateJavaSource("}"); // while
-        ctxt.generateJavaSource("}"); // Not Null
     }
 
     /**
-     * Generate iterators for data types supported in items
+     * Generate codes for literal items. A literal is always a comma separated
+     * String, so it is split when the page is translated and the loop reads
+     * the tokens from a String array by index:
+     * <pre>
+     * static final String[] tokens = {"a", "b", ...};
+     * for (pos = begin; pos &lt; tokens.length; pos += step) {
+     *     if (pos &gt; end) break;
+     *     var = tokens[pos];
+     *     body;
+     * }
+     * </pre>
+     */
+    private void doLiteral(TagPluginContext ctxt, String beginV, String endV,
+            String stepV) {
+
+        String tokensV = ctxt.getTemporaryVariableName();
+        StringBuilder declaration = new StringBuilder();
+        declaration.append("private static final String[] ").append(tokensV).append(" = {");
+        StringTokenizer tokens = new StringTokenizer(ctxt.getConstantAttribute("items"), ",");
+        while (tokens.hasMoreTokens()) {
+            quote(declaration, tokens.nextToken());
+            if (tokens.hasMoreTokens()) {
+                declaration.append(", ");
+            }
+        }
+        declaration.append("};");
+        ctxt.generateDeclaration(tokensV, declaration.toString());
+
+        String posV = ctxt.getTemporaryVariableName();
+        ctxt.generateJavaSource("for (int " + posV + " = " +
+                (beginV == null ? "0" : beginV) + "; " + posV + " < " + tokensV +
+                ".length; " + posV + (stepV == null ? "++" : " += " + stepV) + ") {");
+        if (hasEnd) {
+            ctxt.generateJavaSource("if(" + posV + ">" + endV + ")");
+            ctxt.generateJavaSource("break;");
+        }
+        if (hasVar) {
+            ctxt.generateJavaSource("_jspx_page_context.setAttribute(");
+            ctxt.generateAttribute("var");
+            ctxt.generateJavaSource(", " + tokensV + "[" + posV + "]);");
+        }
+        ctxt.generateBody();
+        ctxt.generateJavaSource("}");
+    }
+
+    /*
+     * Appends s to the generated source as a Java string literal.
      */
-    private void generateIterators(TagPluginContext ctxt) {
-
-        // Object[]
-        ctxt.generateDeclaration("ObjectArrayIterator",
-                "private Iterator toIterator(final Object[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return a[index++];}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // boolean[]
-        ctxt.generateDeclaration("booleanArrayIterator",
-                "private Iterator toIterator(final boolean[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Boolean(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // byte[]
-        ctxt.generateDeclaration("byteArrayIterator",
-                "private Iterator toIterator(final byte[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Byte(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // char[]
-        ctxt.generateDeclaration("charArrayIterator",
-                "private Iterator toIterator(final char[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Character(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // short[]
-        ctxt.generateDeclaration("shortArrayIterator",
-                "private Iterator toIterator(final short[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Short(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // int[]
-        ctxt.generateDeclaration("intArrayIterator",
-                "private Iterator toIterator(final int[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Integer(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // long[]
-        ctxt.generateDeclaration("longArrayIterator",
-                "private Iterator toIterator(final long[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Long(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // float[]
-        ctxt.generateDeclaration("floatArrayIterator",
-                "private Iterator toIterator(final float[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Float(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // double[]
-        ctxt.generateDeclaration("doubleArrayIterator",
-                "private Iterator toIterator(final double[] a){\n" +
-                "  return (new Iterator() {\n" +
-                "    int index=0;\n" +
-                "    public boolean hasNext() {\n" +
-                "      return index < a.length;}\n" +
-                "    public Object next() {\n" +
-                "      return new Double(a[index++]);}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
-
-        // Enumeration
-        ctxt.generateDeclaration("enumIterator",
-                "private Iterator toIterator(final Enumeration e){\n" +
-                "  return (new Iterator() {\n" +
-                "    public boolean hasNext() {\n" +
-                "      return e.hasMoreElements();}\n" +
-                "    public Object next() {\n" +
-                "      return e.nextElement();}\n" +
-                "    public void remove() {}\n" +
-                "  });\n" +
-                "}"
-        );
+    private static void quote(StringBuilder source, String s) {
+        source.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                source.append("\\\"");
+            } else if (c == '\\') {
+                source.append("\\\\");
+            } else if (c == '\n') {
+                source.append("\\n");
+            } else if (c == '\r') {
+                source.append("\\r");
+            } else {
+                source.append(c);
+            }
+        }
+        source.append('"');
+    }
+
+
+    // ------------------------------------------- Methods used by generated code
+
+    public static int kindOf(Object items) {
+        if (items instanceof Object[]) {
+            return KIND_OBJECT_ARRAY;
+        } else if (items instanceof List && items instanceof RandomAccess) {
+            return KIND_LIST;
+        } else if (items instanceof Collection || items instanceof Iterator ||
+                items instanceof Enumeration || items instanceof Map ||
+                items instanceof String) {
+            return KIND_ITERATOR;
+        } else if (items instanceof int[]) {
+            return KIND_INT_ARRAY;
+        } else if (items instanceof long[]) {
+            return KIND_LONG_ARRAY;
+        } else if (items instanceof double[]) {
+            return KIND_DOUBLE_ARRAY;
+        } else if (items instanceof boolean[]) {
+            return KIND_BOOLEAN_ARRAY;
+        } else if (items instanceof byte[]) {
+            return KIND_BYTE_ARRAY;
+        } else if (items instanceof char[]) {
+            return KIND_CHAR_ARRAY;
+        } else if (items instanceof short[]) {
+            return KIND_SHORT_ARRAY;
+        } else if (items instanceof float[]) {
+            return KIND_FLOAT_ARRAY;
+        }
+        return KIND_NONE;
+    }
+
+    public static Iterator<?> toIterator(Object items) {
+        if (items instanceof Collection) {
+            return ((Collection<?>) items).iterator();
+        } else if (items instanceof Iterator) {
+            return (Iterator<?>) items;
+        } else if (items instanceof Enumeration) {
+            return new EnumerationIterator((Enumeration<?>) items);
+        } else if (items instanceof Map) {
+            return ((Map<?,?>) items).entrySet().iterator();
+        } else if (items instanceof String) {
+            return new EnumerationIterator(new StringTokenizer((String) items, ","));
+        }
+        return null;
+    }
 
+    public static int length(Object items, int kind) {
+        switch (kind) {
+            case KIND_LIST:
+                return ((List<?>) items).size();
+            case KIND_OBJECT_ARRAY:
+                return ((Object[]) items).length;
+            case KIND_BOOLEAN_ARRAY:
+                return ((boolean[]) items).length;
+            case KIND_BYTE_ARRAY:
+                return ((byte[]) items).length;
+            case KIND_CHAR_ARRAY:
+                return ((char[]) items).length;
+            case KIND_SHORT_ARRAY:
+                return ((short[]) items).length;
+            case KIND_INT_ARRAY:
+                return ((int[]) items).length;
+            case KIND_LONG_ARRAY:
+                return ((long[]) items).length;
+            case KIND_FLOAT_ARRAY:
+                return ((float[]) items).length;
+            case KIND_DOUBLE_ARRAY:
+                return ((double[]) items).length;
+            default:
+                return 0;
+        }
+    }
+
+    public static Object get(Object items, int kind, int index) {
+        switch (kind) {
+            case KIND_LIST:
+                return ((List<?>) items).get(index);
+            case KIND_OBJECT_ARRAY:
+                return ((Object[]) items)[index];
+            case KIND_BOOLEAN_ARRAY:
+                return Boolean.valueOf(((boolean[]) items)[index]);
+            case KIND_BYTE_ARRAY:
+                return Byte.valueOf(((byte[]) items)[index]);
+            case KIND_CHAR_ARRAY:
+                return Character.valueOf(((char[]) items)[index]);
+            case KIND_SHORT_ARRAY:
+                return Short.valueOf(((short[]) items)[index]);
+            case KIND_INT_ARRAY:
+                return Integer.valueOf(((int[]) items)[index]);
+            case KIND_LONG_ARRAY:
+                return Long.valueOf(((long[]) items)[index]);
+            case KIND_FLOAT_ARRAY:
+                return Float.valueOf(((float[]) items)[index]);
+            case KIND_DOUBLE_ARRAY:
+                return Double.valueOf(((double[]) items)[index]);
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+
+    private static class EnumerationIterator implements Iterator<Object> {
+
+        private final Enumeration<?> e;
+
+        public EnumerationIterator(Enumeration<?> e) {
+            this.e = e;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return e.hasMoreElements();
+        }
+
+        @Override
+        public Object next() {
+            if (!e.hasMoreElements()) {
+                throw new NoSuchElementException();
+            }
+            return e.nextElement();
+        }
+
+        @Override
+        public void remove() {
+            // NO-OP
+        }
     }
 }
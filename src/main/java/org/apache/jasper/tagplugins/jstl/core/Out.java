@@ -101,12 +101,7 @@ public final class Out implements TagPlugin {
                 read = ((Reader) input).read(buffer);
                 if (read != -1) {
                     if (escapeXml) {
-                        String escaped = Util.escapeXml(buffer, read);
-                        if (escaped == null) {
-                            out.write(buffer, 0, read);
-                        } else {
-                            out.print(escaped);
-                        }
+                        Util.writeEscapedXml(buffer, read, out);
                     } else {
                         out.write(buffer, 0, read);
                     }
@@ -117,9 +112,10 @@ public final class Out implements TagPlugin {
             String v = value != null ? value : defaultValue;
             if (v != null) {
                 if(escapeXml){
-                    v = Util.escapeXml(v);
+                    Util.writeEscapedXml(v, out);
+                } else {
+                    out.write(v);
                 }
-                out.write(v);
                 return true;
             } else {
                 return false;
@@ -0,0 +1,500 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.tagplugins.jstl.fmt;
+
+import java.lang.reflect.Method;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletResponse;
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.PageContext;
+
+/**
+ * Runtime support shared by the JSTL formatting tag plugins.
+ * <p>
+ * Locale, time zone and resource bundle resolution follow the i18n rules of
+ * the JSTL specification and read the configuration variables it defines,
+ * so the generated code behaves like the tag handlers it replaces without
+ * linking against the JSTL implementation.
+ */
+public final class FmtUtil {
+
+    static final String FMT_LOCALE =
+            "javax.servlet.jsp.jstl.fmt.locale";
+    static final String FMT_FALLBACK_LOCALE =
+            "javax.servlet.jsp.jstl.fmt.fallbackLocale";
+    static final String FMT_LOCALIZATION_CONTEXT =
+            "javax.servlet.jsp.jstl.fmt.localizationContext";
+    static final String FMT_TIME_ZONE =
+            "javax.servlet.jsp.jstl.fmt.timeZone";
+
+    /**
+     * Tag handlers that establish a localization context or a time zone for
+     * the tags nested within them. The plugins leave such nested tags to
+     * their tag handlers.
+     */
+    static final String BUNDLE_SUPPORT =
+            "org.apache.taglibs.standard.tag.common.fmt.BundleSupport";
+    static final String TIME_ZONE_SUPPORT =
+            "org.apache.taglibs.standard.tag.common.fmt.TimeZoneSupport";
+
+    private static final String REQUEST_CHAR_SET =
+            "javax.servlet.jsp.jstl.fmt.request.charset";
+
+    private static final Locale EMPTY_LOCALE = new Locale("");
+
+    /**
+     * Marks a cached locale match lookup that found no match.
+     */
+    private static final Locale NO_MATCH = new Locale("");
+
+    /**
+     * Bounds the caches whose keys come from the request, such as the
+     * browser's preferred locales.
+     */
+    private static final int MAX_CACHE_SIZE = 1000;
+
+    private static final Map<String,TimeZone> timeZones =
+            new ConcurrentHashMap<String,TimeZone>();
+
+    /*
+     * Held per class, so that the class of a web application's
+     * LocalizationContext is not referenced from here once the application
+     * is stopped.
+     */
+    private static final ClassValue<LocalizationContextAccessor> accessors =
+            new ClassValue<LocalizationContextAccessor>() {
+        @Override
+        protected LocalizationContextAccessor computeValue(Class<?> type) {
+            return new LocalizationContextAccessor(type);
+        }
+    };
+
+    private FmtUtil() {
+        // Utility class. Hide default constructor.
+    }
+
+
+    /**
+     * Find the value of a JSTL configuration variable. The page, request,
+     * session and application scopes are searched in that order, followed
+     * by the context initialization parameters.
+     *
+     * @param pc   The page context
+     * @param name The configuration variable name
+     * @return the value of the configuration variable or <code>null</code>
+     *         if it is not set
+     */
+    static Object findConfig(PageContext pc, String name) {
+        Object ret = pc.getAttribute(name + ".page", PageContext.PAGE_SCOPE);
+        if (ret == null) {
+            ret = pc.getAttribute(name + ".request", PageContext.REQUEST_SCOPE);
+        }
+        if (ret == null && pc.getSession() != null) {
+            ret = pc.getAttribute(name + ".session", PageContext.SESSION_SCOPE);
+        }
+        if (ret == null) {
+            ret = pc.getAttribute(name + ".application",
+                    PageContext.APPLICATION_SCOPE);
+        }
+        if (ret == null) {
+            ret = pc.getServletContext().getInitParameter(name);
+        }
+        return ret;
+    }
+
+
+    /**
+     * Determine the formatting locale for a formatting action.
+     *
+     * @param pc        The page context
+     * @param available The locales available to the formatter
+     * @param cache     The cache of locale matches for these locales
+     * @return the formatting locale or <code>null</code> if none could be
+     *         established
+     */
+    static Locale getFormattingLocale(PageContext pc, Locale[] available,
+            Map<Locale,Locale> cache) {
+        // Use the locale of the default localization context, if it has one
+        Object config = findConfig(pc, FMT_LOCALIZATION_CONTEXT);
+        if (config != null) {
+            Locale locale = getLocalizationContext(pc, config).locale;
+            if (locale != null) {
+                setResponseLocale(pc, locale);
+                return locale;
+            }
+        }
+
+        Locale match = null;
+        Locale pref = getLocale(pc, FMT_LOCALE);
+        if (pref != null) {
+            match = findFormattingMatch(pref, available, cache);
+        } else {
+            Enumeration<Locale> prefs = pc.getRequest().getLocales();
+            while (match == null && prefs.hasMoreElements()) {
+                match = findFormattingMatch(prefs.nextElement(), available,
+                        cache);
+            }
+        }
+        if (match == null) {
+            pref = getLocale(pc, FMT_FALLBACK_LOCALE);
+            if (pref != null) {
+                match = findFormattingMatch(pref, available, cache);
+            }
+        }
+        if (match != null) {
+            setResponseLocale(pc, match);
+        }
+        return match;
+    }
+
+
+    /**
+     * Determine the time zone configured for the page.
+     *
+     * @param pc The page context
+     * @return the configured time zone or <code>null</code> if the default
+     *         time zone should be used
+     */
+    static TimeZone getConfiguredTimeZone(PageContext pc) {
+        Object config = findConfig(pc, FMT_TIME_ZONE);
+        if (config instanceof TimeZone) {
+            return (TimeZone) config;
+        } else if (config != null) {
+            return getTimeZone((String) config);
+        }
+        return null;
+    }
+
+
+    /**
+     * Look up a time zone by ID. Time zones are immutable once handed to a
+     * formatter so the lookups, which clone the zone, are cached.
+     *
+     * @param id The time zone ID
+     * @return the time zone
+     */
+    static TimeZone getTimeZone(String id) {
+        TimeZone tz = timeZones.get(id);
+        if (tz == null) {
+            tz = TimeZone.getTimeZone(id);
+            if (timeZones.size() < MAX_CACHE_SIZE) {
+                timeZones.put(id, tz);
+            }
+        }
+        return tz;
+    }
+
+
+    /**
+     * Look up a message in the default localization context, as
+     * &lt;fmt:message&gt; does when it has no <code>bundle</code> attribute.
+     *
+     * @param pc  The page context
+     * @param key The message key
+     * @return the message, <code>???key???</code> if it cannot be found or
+     *         <code>null</code> if the key is <code>null</code> or empty
+     */
+    static String getMessage(PageContext pc, String key) {
+        if (key == null || key.length() == 0) {
+            return null;
+        }
+        Object config = findConfig(pc, FMT_LOCALIZATION_CONTEXT);
+        if (config != null) {
+            Context ctxt = getLocalizationContext(pc, config);
+            if (ctxt.bundle != null) {
+                if (ctxt.locale != null) {
+                    setResponseLocale(pc, ctxt.locale);
+                }
+                try {
+                    return ctxt.bundle.getString(key);
+                } catch (MissingResourceException e) {
+                    // Fall through
+                }
+            }
+        }
+        return "???" + key + "???";
+    }
+
+
+    private static Context getLocalizationContext(PageContext pc,
+            Object config) {
+        if (config instanceof String) {
+            return getLocalizationContext(pc, (String) config);
+        }
+        // A javax.servlet.jsp.jstl.fmt.LocalizationContext
+        return accessors.get(config.getClass()).get(config);
+    }
+
+
+    private static Context getLocalizationContext(PageContext pc,
+            String basename) {
+        if (basename.length() == 0) {
+            return new Context(null, null);
+        }
+
+        Context ctxt = null;
+        Locale pref = getLocale(pc, FMT_LOCALE);
+        if (pref != null) {
+            ctxt = findMatch(basename, pref);
+        } else {
+            Enumeration<Locale> prefs = pc.getRequest().getLocales();
+            while (ctxt == null && prefs.hasMoreElements()) {
+                ctxt = findMatch(basename, prefs.nextElement());
+            }
+        }
+        if (ctxt == null) {
+            pref = getLocale(pc, FMT_FALLBACK_LOCALE);
+            if (pref != null) {
+                ctxt = findMatch(basename, pref);
+            }
+        }
+        if (ctxt == null) {
+            try {
+                ctxt = new Context(ResourceBundle.getBundle(basename,
+                        EMPTY_LOCALE, getClassLoader()), null);
+            } catch (MissingResourceException e) {
+                ctxt = new Context(null, null);
+            }
+        }
+        return ctxt;
+    }
+
+
+    /*
+     * A bundle matches if its locale is the preferred locale or, failing
+     * that, shares its language and either its country or has no country.
+     */
+    private static Context findMatch(String basename, Locale pref) {
+        try {
+            ResourceBundle bundle =
+                    ResourceBundle.getBundle(basename, pref, getClassLoader());
+            Locale avail = bundle.getLocale();
+            if (pref.equals(avail) ||
+                    pref.getLanguage().equals(avail.getLanguage()) &&
+                    (avail.getCountry().length() == 0 ||
+                            pref.getCountry().equals(avail.getCountry()))) {
+                return new Context(bundle, pref);
+            }
+        } catch (MissingResourceException e) {
+            // No match
+        }
+        return null;
+    }
+
+
+    private static Locale findFormattingMatch(Locale pref, Locale[] available,
+            Map<Locale,Locale> cache) {
+        Locale match = cache.get(pref);
+        if (match == null) {
+            match = findFormattingMatch(pref, available);
+            if (match == null) {
+                match = NO_MATCH;
+            }
+            if (cache.size() < MAX_CACHE_SIZE) {
+                cache.put(pref, match);
+            }
+        }
+        return match == NO_MATCH ? null : match;
+    }
+
+
+    /*
+     * An exact match wins, then a match on language, country and no variant,
+     * then the first match on language and no country.
+     */
+    private static Locale findFormattingMatch(Locale pref, Locale[] available) {
+        Locale match = null;
+        boolean langAndCountryMatch = false;
+        for (Locale avail : available) {
+            if (pref.equals(avail)) {
+                return avail;
+            } else if (pref.getVariant().length() > 0 &&
+                    avail.getVariant().length() == 0 &&
+                    pref.getLanguage().equals(avail.getLanguage()) &&
+                    pref.getCountry().equals(avail.getCountry())) {
+                match = avail;
+                langAndCountryMatch = true;
+            } else if (!langAndCountryMatch &&
+                    pref.getLanguage().equals(avail.getLanguage()) &&
+                    avail.getCountry().length() == 0) {
+                if (match == null) {
+                    match = avail;
+                }
+            }
+        }
+        return match;
+    }
+
+
+    private static Locale getLocale(PageContext pc, String name) {
+        Object config = findConfig(pc, name);
+        if (config == null || config instanceof Locale) {
+            return (Locale) config;
+        }
+        return parseLocale((String) config);
+    }
+
+
+    /*
+     * Parses a locale of the form language[{-|_}country].
+     */
+    private static Locale parseLocale(String locale) {
+        String language = locale;
+        String country = "";
+        int index = locale.indexOf('-');
+        if (index == -1) {
+            index = locale.indexOf('_');
+        }
+        if (index > -1) {
+            language = locale.substring(0, index);
+            country = locale.substring(index + 1);
+            if (country.length() == 0) {
+                throw new IllegalArgumentException(
+                        "Missing country in locale [" + locale + "]");
+            }
+        }
+        if (language.length() == 0) {
+            throw new IllegalArgumentException(
+                    "Missing language in locale [" + locale + "]");
+        }
+        return new Locale(language, country);
+    }
+
+
+    private static void setResponseLocale(PageContext pc, Locale locale) {
+        ServletResponse response = pc.getResponse();
+        response.setLocale(locale);
+        if (pc.getSession() != null) {
+            try {
+                pc.setAttribute(REQUEST_CHAR_SET,
+                        response.getCharacterEncoding(),
+                        PageContext.SESSION_SCOPE);
+            } catch (IllegalStateException e) {
+                // Session has been invalidated
+            }
+        }
+    }
+
+
+    private static ClassLoader getClassLoader() {
+        return Thread.currentThread().getContextClassLoader();
+    }
+
+
+    /**
+     * Creates the exception reported for an invalid attribute value that can
+     * only be detected at request time.
+     *
+     * @param tag       The name of the tag
+     * @param attribute The name of the attribute
+     * @param value     The invalid value
+     * @param cause     The cause, if any
+     * @return the exception to throw
+     */
+    static JspException invalidAttribute(String tag, String attribute,
+            Object value, Throwable cause) {
+        return new JspException("In <" + tag + ">, the value [" + value +
+                "] of the attribute [" + attribute + "] is not valid", cause);
+    }
+
+
+    /**
+     * A per-thread cache of formatters, keyed by locale and by a formatter
+     * specific key such as a style code or a pattern. Formatters are not
+     * thread safe so each thread gets its own instances.
+     *
+     * @param <F> The formatter type
+     */
+    static final class FormatterCache<F> {
+
+        private static final int MAX_SIZE = 256;
+
+        private final Map<Locale,Map<Object,F>> formatters =
+                new HashMap<Locale,Map<Object,F>>();
+        private int size;
+
+        F get(Locale locale, Object key) {
+            Map<Object,F> byKey = formatters.get(locale);
+            return byKey == null ? null : byKey.get(key);
+        }
+
+        void put(Locale locale, Object key, F formatter) {
+            if (size >= MAX_SIZE) {
+                // Patterns may come from expressions so do not grow without
+                // bound
+                formatters.clear();
+                size = 0;
+            }
+            Map<Object,F> byKey = formatters.get(locale);
+            if (byKey == null) {
+                byKey = new HashMap<Object,F>();
+                formatters.put(locale, byKey);
+            }
+            byKey.put(key, formatter);
+            size++;
+        }
+    }
+
+
+    private static final class Context {
+        final ResourceBundle bundle;
+        final Locale locale;
+
+        Context(ResourceBundle bundle, Locale locale) {
+            this.bundle = bundle;
+            this.locale = locale;
+        }
+    }
+
+
+    /*
+     * The plugins do not link against the JSTL API, so a LocalizationContext
+     * stored in a configuration variable is read reflectively.
+     */
+    private static final class LocalizationContextAccessor {
+        private final Method getResourceBundle;
+        private final Method getLocale;
+
+        LocalizationContextAccessor(Class<?> type) {
+            try {
+                getResourceBundle = type.getMethod("getResourceBundle");
+                getLocale = type.getMethod("getLocale");
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(
+                        "Not a localization context [" + type.getName() + "]", e);
+            }
+        }
+
+        Context get(Object localizationContext) {
+            try {
+                return new Context(
+                        (ResourceBundle) getResourceBundle.invoke(localizationContext),
+                        (Locale) getLocale.invoke(localizationContext));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+}
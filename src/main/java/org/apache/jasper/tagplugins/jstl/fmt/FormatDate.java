@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.tagplugins.jstl.fmt;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.PageContext;
+
+import org.apache.jasper.compiler.tagplugin.TagPlugin;
+import org.apache.jasper.compiler.tagplugin.TagPluginContext;
+import org.apache.jasper.tagplugins.jstl.Util;
+
+/**
+ * Generates inline code for &lt;fmt:formatDate&gt;. Tags with a dynamic
+ * type or style, or that are nested in &lt;fmt:bundle&gt; or
+ * &lt;fmt:timeZone&gt;, are left to the tag handler.
+ */
+public final class FormatDate implements TagPlugin {
+
+    public static final int TYPE_DATE = 0;
+    public static final int TYPE_TIME = 1;
+    public static final int TYPE_BOTH = 2;
+
+    private static final Locale[] AVAILABLE_LOCALES =
+            DateFormat.getAvailableLocales();
+
+    private static final Map<Locale,Locale> LOCALE_MATCHES =
+            new ConcurrentHashMap<Locale,Locale>();
+
+    private static final ThreadLocal<FmtUtil.FormatterCache<DateFormat>> FORMATTERS =
+            new ThreadLocal<FmtUtil.FormatterCache<DateFormat>>() {
+        @Override
+        protected FmtUtil.FormatterCache<DateFormat> initialValue() {
+            return new FmtUtil.FormatterCache<DateFormat>();
+        }
+    };
+
+    @Override
+    public void doTag(TagPluginContext ctxt) {
+
+        if (!ctxt.isAttributeSpecified("value") || !ctxt.isBodyEmpty() ||
+                ctxt.hasAncestorTag(FmtUtil.BUNDLE_SUPPORT) ||
+                ctxt.hasAncestorTag(FmtUtil.TIME_ZONE_SUPPORT)) {
+            ctxt.dontUseTagPlugin();
+            return;
+        }
+
+        // Invalid or dynamic types and styles are reported by the tag handler
+        int type = TYPE_DATE;
+        int dateStyle = DateFormat.DEFAULT;
+        int timeStyle = DateFormat.DEFAULT;
+        if (ctxt.isAttributeSpecified("type")) {
+            type = ctxt.isConstantAttribute("type") ?
+                    getType(ctxt.getConstantAttribute("type")) : -1;
+        }
+        if (ctxt.isAttributeSpecified("dateStyle")) {
+            dateStyle = ctxt.isConstantAttribute("dateStyle") ?
+                    getStyle(ctxt.getConstantAttribute("dateStyle")) : -1;
+        }
+        if (ctxt.isAttributeSpecified("timeStyle")) {
+            timeStyle = ctxt.isConstantAttribute("timeStyle") ?
+                    getStyle(ctxt.getConstantAttribute("timeStyle")) : -1;
+        }
+        if (type == -1 || dateStyle == -1 || timeStyle == -1) {
+            ctxt.dontUseTagPlugin();
+            return;
+        }
+
+        String jspCtxt = ctxt.isTagFile() ?
+                "((javax.servlet.jsp.PageContext) this.getJspContext())" :
+                "_jspx_page_context";
+
+        String resultName = ctxt.getTemporaryVariableName();
+        ctxt.generateJavaSource("String " + resultName + " = " +
+                "org.apache.jasper.tagplugins.jstl.fmt.FormatDate.format(" +
+                jspCtxt + ", ");
+        ctxt.generateAttribute("value");
+        ctxt.generateJavaSource(", " + type + ", " + dateStyle + ", " +
+                timeStyle + ", ");
+        if (ctxt.isAttributeSpecified("pattern")) {
+            ctxt.generateAttribute("pattern");
+        } else {
+            ctxt.generateJavaSource("null");
+        }
+        ctxt.generateJavaSource(", ");
+        if (ctxt.isAttributeSpecified("timeZone")) {
+            ctxt.generateAttribute("timeZone");
+        } else {
+            ctxt.generateJavaSource("null");
+        }
+        ctxt.generateJavaSource(");");
+
+        if (ctxt.isAttributeSpecified("var")) {
+            String strVar = ctxt.getConstantAttribute("var");
+            int iScope = Util.getScope(ctxt.getConstantAttribute("scope"));
+            ctxt.generateJavaSource("if (" + resultName + " == null) {");
+            ctxt.generateJavaSource("    " + jspCtxt + ".removeAttribute(\"" +
+                    strVar + "\", " + iScope + ");");
+            ctxt.generateJavaSource("} else {");
+            ctxt.generateJavaSource("    " + jspCtxt + ".setAttribute(\"" +
+                    strVar + "\", " + resultName + ", " + iScope + ");");
+            ctxt.generateJavaSource("}");
+        } else {
+            ctxt.generateJavaSource("if (" + resultName + " != null) {");
+            ctxt.generateJavaSource("    out.write(" + resultName + ");");
+            ctxt.generateJavaSource("}");
+        }
+    }
+
+    /**
+     * @param type The value of the <code>type</code> attribute
+     * @return the type code or <code>-1</code> if the type is not valid
+     */
+    static int getType(String type) {
+        if ("date".equalsIgnoreCase(type)) {
+            return TYPE_DATE;
+        } else if ("time".equalsIgnoreCase(type)) {
+            return TYPE_TIME;
+        } else if ("both".equalsIgnoreCase(type)) {
+            return TYPE_BOTH;
+        }
+        return -1;
+    }
+
+    /**
+     * @param style The value of a <code>dateStyle</code> or
+     *              <code>timeStyle</code> attribute
+     * @return the {@link DateFormat} style or <code>-1</code> if the style is
+     *         not valid
+     */
+    static int getStyle(String style) {
+        if ("default".equalsIgnoreCase(style)) {
+            return DateFormat.DEFAULT;
+        } else if ("short".equalsIgnoreCase(style)) {
+            return DateFormat.SHORT;
+        } else if ("medium".equalsIgnoreCase(style)) {
+            return DateFormat.MEDIUM;
+        } else if ("long".equalsIgnoreCase(style)) {
+            return DateFormat.LONG;
+        } else if ("full".equalsIgnoreCase(style)) {
+            return DateFormat.FULL;
+        }
+        return -1;
+    }
+
+    /**
+     * Format a date as &lt;fmt:formatDate&gt; does.
+     *
+     * @param pc        The page context
+     * @param value     The date to format
+     * @param type      One of the TYPE_ constants, ignored if a pattern is
+     *                  given
+     * @param dateStyle The {@link DateFormat} style for the date part
+     * @param timeStyle The {@link DateFormat} style for the time part
+     * @param pattern   The custom formatting pattern, may be
+     *                  <code>null</code> or empty
+     * @param timeZone  The time zone, a {@link TimeZone} or a time zone ID,
+     *                  may be <code>null</code>
+     * @return the formatted value or <code>null</code> if there is no value
+     *         to format
+     * @throws JspException if the time zone is neither a {@link TimeZone}
+     *         nor a {@link String}
+     */
+    public static String format(PageContext pc, Date value, int type,
+            int dateStyle, int timeStyle, String pattern, Object timeZone)
+            throws JspException {
+        if (value == null) {
+            return null;
+        }
+
+        Locale locale = FmtUtil.getFormattingLocale(pc, AVAILABLE_LOCALES,
+                LOCALE_MATCHES);
+        if (locale == null) {
+            return value.toString();
+        }
+
+        TimeZone tz;
+        if (timeZone == null || "".equals(timeZone)) {
+            tz = FmtUtil.getConfiguredTimeZone(pc);
+        } else if (timeZone instanceof String) {
+            tz = FmtUtil.getTimeZone((String) timeZone);
+        } else if (timeZone instanceof TimeZone) {
+            tz = (TimeZone) timeZone;
+        } else {
+            throw FmtUtil.invalidAttribute("formatDate", "timeZone", timeZone,
+                    null);
+        }
+
+        DateFormat formatter = getFormatter(locale, type, dateStyle,
+                timeStyle, pattern);
+        // Cached formatters may carry the zone of a previous request
+        formatter.setTimeZone(tz == null ? TimeZone.getDefault() : tz);
+        return formatter.format(value);
+    }
+
+    private static DateFormat getFormatter(Locale locale, int type,
+            int dateStyle, int timeStyle, String pattern) {
+        FmtUtil.FormatterCache<DateFormat> cache = FORMATTERS.get();
+        boolean hasPattern = pattern != null && pattern.length() > 0;
+        // The styles and type fit in four bits each
+        Object key = hasPattern ? pattern :
+                Integer.valueOf(type << 8 | dateStyle << 4 | timeStyle);
+        DateFormat formatter = cache.get(locale, key);
+        if (formatter == null) {
+            if (hasPattern) {
+                formatter = new SimpleDateFormat(pattern, locale);
+            } else if (type == TYPE_TIME) {
+                formatter = DateFormat.getTimeInstance(timeStyle, locale);
+            } else if (type == TYPE_BOTH) {
+                formatter = DateFormat.getDateTimeInstance(dateStyle,
+                        timeStyle, locale);
+            } else {
+                formatter = DateFormat.getDateInstance(dateStyle, locale);
+            }
+            cache.put(locale, key, formatter);
+        }
+        return formatter;
+    }
+}
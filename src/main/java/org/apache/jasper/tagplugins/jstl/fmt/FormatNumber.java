@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.tagplugins.jstl.fmt;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.PageContext;
+
+import org.apache.jasper.compiler.tagplugin.TagPlugin;
+import org.apache.jasper.compiler.tagplugin.TagPluginContext;
+import org.apache.jasper.tagplugins.jstl.Util;
+
+/**
+ * Generates inline code for &lt;fmt:formatNumber&gt;. Tags that configure
+ * the currency or the digits, take their value from the body or are nested
+ * in &lt;fmt:bundle&gt; are left to the tag handler.
+ */
+public final class FormatNumber implements TagPlugin {
+
+    public static final int TYPE_NUMBER = 0;
+    public static final int TYPE_CURRENCY = 1;
+    public static final int TYPE_PERCENT = 2;
+
+    private static final String[] UNSUPPORTED_ATTRIBUTES = {
+        "currencyCode", "currencySymbol", "groupingUsed", "maxIntegerDigits",
+        "minIntegerDigits", "maxFractionDigits", "minFractionDigits" };
+
+    private static final Locale[] AVAILABLE_LOCALES =
+            NumberFormat.getAvailableLocales();
+
+    private static final Map<Locale,Locale> LOCALE_MATCHES =
+            new ConcurrentHashMap<Locale,Locale>();
+
+    private static final ThreadLocal<FmtUtil.FormatterCache<NumberFormat>> FORMATTERS =
+            new ThreadLocal<FmtUtil.FormatterCache<NumberFormat>>() {
+        @Override
+        protected FmtUtil.FormatterCache<NumberFormat> initialValue() {
+            return new FmtUtil.FormatterCache<NumberFormat>();
+        }
+    };
+
+    @Override
+    public void doTag(TagPluginContext ctxt) {
+
+        if (!ctxt.isAttributeSpecified("value") || !ctxt.isBodyEmpty() ||
+                ctxt.hasAncestorTag(FmtUtil.BUNDLE_SUPPORT)) {
+            ctxt.dontUseTagPlugin();
+            return;
+        }
+        for (String attribute : UNSUPPORTED_ATTRIBUTES) {
+            if (ctxt.isAttributeSpecified(attribute)) {
+                ctxt.dontUseTagPlugin();
+                return;
+            }
+        }
+
+        // An invalid or dynamic type is reported by the tag handler
+        int type = TYPE_NUMBER;
+        if (ctxt.isAttributeSpecified("type")) {
+            if (!ctxt.isConstantAttribute("type")) {
+                ctxt.dontUseTagPlugin();
+                return;
+            }
+            type = getType(ctxt.getConstantAttribute("type"));
+            if (type == -1) {
+                ctxt.dontUseTagPlugin();
+                return;
+            }
+        }
+
+        String jspCtxt = ctxt.isTagFile() ?
+                "((javax.servlet.jsp.PageContext) this.getJspContext())" :
+                "_jspx_page_context";
+
+        String resultName = ctxt.getTemporaryVariableName();
+        ctxt.generateJavaSource("String " + resultName + " = " +
+                "org.apache.jasper.tagplugins.jstl.fmt.FormatNumber.format(" +
+                jspCtxt + ", ");
+        ctxt.generateAttribute("value");
+        ctxt.generateJavaSource(", " + type + ", ");
+        if (ctxt.isAttributeSpecified("pattern")) {
+            ctxt.generateAttribute("pattern");
+        } else {
+            ctxt.generateJavaSource("null");
+        }
+        ctxt.generateJavaSource(");");
+
+        if (ctxt.isAttributeSpecified("var")) {
+            String strVar = ctxt.getConstantAttribute("var");
+            int iScope = Util.getScope(ctxt.getConstantAttribute("scope"));
+            ctxt.generateJavaSource("if (" + resultName + " == null) {");
+            ctxt.generateJavaSource("    " + jspCtxt + ".removeAttribute(\"" +
+                    strVar + "\", " + iScope + ");");
+            ctxt.generateJavaSource("} else {");
+            ctxt.generateJavaSource("    " + jspCtxt + ".setAttribute(\"" +
+                    strVar + "\", " + resultName + ", " + iScope + ");");
+            ctxt.generateJavaSource("}");
+        } else {
+            ctxt.generateJavaSource("if (" + resultName + " != null) {");
+            ctxt.generateJavaSource("    out.write(" + resultName + ");");
+            ctxt.generateJavaSource("}");
+        }
+    }
+
+    /**
+     * @param type The value of the <code>type</code> attribute
+     * @return the type code or <code>-1</code> if the type is not valid
+     */
+    static int getType(String type) {
+        if ("number".equalsIgnoreCase(type)) {
+            return TYPE_NUMBER;
+        } else if ("currency".equalsIgnoreCase(type)) {
+            return TYPE_CURRENCY;
+        } else if ("percent".equalsIgnoreCase(type)) {
+            return TYPE_PERCENT;
+        }
+        return -1;
+    }
+
+    /**
+     * Format a number as &lt;fmt:formatNumber&gt; does.
+     *
+     * @param pc      The page context
+     * @param value   The value to format, a {@link Number} or a
+     *                {@link String} that is parsed as a number
+     * @param type    One of the TYPE_ constants, ignored if a pattern is
+     *                given
+     * @param pattern The custom formatting pattern, may be <code>null</code>
+     * @return the formatted value or <code>null</code> if there is no value
+     *         to format
+     * @throws JspException if a string value cannot be parsed
+     */
+    public static String format(PageContext pc, Object value, int type,
+            String pattern) throws JspException {
+        if (value == null || "".equals(value)) {
+            return null;
+        }
+        if (value instanceof String) {
+            String s = (String) value;
+            try {
+                if (s.indexOf('.') != -1) {
+                    value = Double.valueOf(s);
+                } else {
+                    value = Long.valueOf(s);
+                }
+            } catch (NumberFormatException e) {
+                throw FmtUtil.invalidAttribute("formatNumber", "value", s, e);
+            }
+        }
+
+        Locale locale = FmtUtil.getFormattingLocale(pc, AVAILABLE_LOCALES,
+                LOCALE_MATCHES);
+        if (locale == null) {
+            return value.toString();
+        }
+        return getFormatter(locale, type, pattern).format(value);
+    }
+
+    private static NumberFormat getFormatter(Locale locale, int type,
+            String pattern) {
+        FmtUtil.FormatterCache<NumberFormat> cache = FORMATTERS.get();
+        boolean hasPattern = pattern != null && pattern.length() > 0;
+        Object key = hasPattern ? pattern : Integer.valueOf(type);
+        NumberFormat formatter = cache.get(locale, key);
+        if (formatter == null) {
+            if (hasPattern) {
+                formatter = new DecimalFormat(pattern,
+                        new DecimalFormatSymbols(locale));
+            } else if (type == TYPE_CURRENCY) {
+                formatter = NumberFormat.getCurrencyInstance(locale);
+            } else if (type == TYPE_PERCENT) {
+                formatter = NumberFormat.getPercentInstance(locale);
+            } else {
+                formatter = NumberFormat.getNumberInstance(locale);
+            }
+            cache.put(locale, key, formatter);
+        }
+        return formatter;
+    }
+}
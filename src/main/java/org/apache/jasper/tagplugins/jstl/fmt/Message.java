@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.tagplugins.jstl.fmt;
+
+import javax.servlet.jsp.PageContext;
+
+import org.apache.jasper.compiler.tagplugin.TagPlugin;
+import org.apache.jasper.compiler.tagplugin.TagPluginContext;
+import org.apache.jasper.tagplugins.jstl.Util;
+
+/**
+ * Generates inline code for &lt;fmt:message&gt; when the message comes from
+ * the default localization context. Tags with a <code>bundle</code>
+ * attribute, with &lt;fmt:param&gt; children or a key in the body, or that
+ * are nested in &lt;fmt:bundle&gt;, are left to the tag handler.
+ */
+public final class Message implements TagPlugin {
+
+    @Override
+    public void doTag(TagPluginContext ctxt) {
+
+        if (!ctxt.isAttributeSpecified("key") ||
+                ctxt.isAttributeSpecified("bundle") || !ctxt.isBodyEmpty() ||
+                ctxt.hasAncestorTag(FmtUtil.BUNDLE_SUPPORT)) {
+            ctxt.dontUseTagPlugin();
+            return;
+        }
+
+        String jspCtxt = ctxt.isTagFile() ?
+                "((javax.servlet.jsp.PageContext) this.getJspContext())" :
+                "_jspx_page_context";
+
+        String resultName = ctxt.getTemporaryVariableName();
+        ctxt.generateJavaSource("String " + resultName + " = " +
+                "org.apache.jasper.tagplugins.jstl.fmt.Message.getMessage(" +
+                jspCtxt + ", ");
+        ctxt.generateAttribute("key");
+        ctxt.generateJavaSource(");");
+
+        // A missing key is always written out, even if var is specified
+        ctxt.generateJavaSource("if (" + resultName + " == null) {");
+        ctxt.generateJavaSource("    out.write(\"??????\");");
+        ctxt.generateJavaSource("} else {");
+        if (ctxt.isAttributeSpecified("var")) {
+            String strVar = ctxt.getConstantAttribute("var");
+            int iScope = Util.getScope(ctxt.getConstantAttribute("scope"));
+            ctxt.generateJavaSource("    " + jspCtxt + ".setAttribute(\"" +
+                    strVar + "\", " + resultName + ", " + iScope + ");");
+        } else {
+            ctxt.generateJavaSource("    out.write(" + resultName + ");");
+        }
+        ctxt.generateJavaSource("}");
+    }
+
+    /**
+     * Look up a message as &lt;fmt:message&gt; does when neither a bundle
+     * attribute nor an enclosing &lt;fmt:bundle&gt; is present.
+     *
+     * @param pc  The page context
+     * @param key The message key
+     * @return the message, <code>???key???</code> if it cannot be found or
+     *         <code>null</code> if the key is <code>null</code> or empty
+     */
+    public static String getMessage(PageContext pc, String key) {
+        return FmtUtil.getMessage(pc, key);
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.apache.juli;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.LogRecord;
@@ -147,11 +149,19 @@ public class AsyncFileHandler extends FileHandler {
 
         @Override
         public void run() {
+            // Handlers written to since the queue was last drained
+            Set<AsyncFileHandler> batch = new LinkedHashSet<AsyncFileHandler>();
             while (run) {
                 try {
                     LogEntry entry = queue.poll(LOGGER_SLEEP_TIME, TimeUnit.MILLISECONDS);
-                    if (entry != null) {
-                        entry.flush();
+                    if (entry != null && entry.flush()) {
+                        batch.add(entry.handler);
+                    }
+                    if (!batch.isEmpty() && queue.isEmpty()) {
+                        for (AsyncFileHandler handler : batch) {
+                            handler.flushBatch();
+                        }
+                        batch.clear();
                     }
                 } catch (InterruptedException x) {
                     Thread.interrupted();
@@ -18,6 +18,8 @@
 package org.apache.juli;
 
 import java.io.*;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.AccessControlException;
@@ -26,6 +28,7 @@ import java.security.Permission;
 import java.security.PrivilegedAction;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -99,6 +102,26 @@ public class ClassLoaderLogManager extends LogManager {
             new WeakHashMap<ClassLoader, ClassLoaderLogInfo>(); // Guarded by this
 
 
+    /**
+     * The classloader information used by {@link #getLogger(String)}, keyed
+     * per classloader, so that loggers that already exist can be looked up
+     * without obtaining the lock on this manager. Both the classloaders and
+     * their information are weakly referenced so that this does not prevent
+     * application redeployment; the information is kept alive by
+     * {@link #classLoaderLoggers}.
+     */
+    private final ConcurrentMap<Object, WeakReference<ClassLoaderLogInfo>> classLoaderInfoCache =
+            new ConcurrentHashMap<Object, WeakReference<ClassLoaderLogInfo>>();
+
+
+    /**
+     * The keys of {@link #classLoaderInfoCache} whose classloaders have been
+     * collected.
+     */
+    private final ReferenceQueue<ClassLoader> collectedClassLoaders =
+            new ReferenceQueue<ClassLoader>();
+
+
     /**
      * This prefix is used to allow using prefixes for the properties names
      * of handlers and their subcomponents.
@@ -234,10 +257,37 @@ public class ClassLoaderLogManager extends LogManager {
      * @param name The name of the logger to retrieve
      */
     @Override
-    public synchronized Logger getLogger(final String name) {
+    public Logger getLogger(final String name) {
         ClassLoader classLoader = Thread.currentThread()
                 .getContextClassLoader();
-        return getClassLoaderInfo(classLoader).loggers.get(name);
+        if (classLoader == null) {
+            classLoader = ClassLoader.getSystemClassLoader();
+        }
+
+        // Fast path for loggers that already exist. The loggers map is
+        // concurrent so it is safe to read without holding the lock.
+        WeakReference<ClassLoaderLogInfo> ref =
+                classLoaderInfoCache.get(new ClassLoaderLookupKey(classLoader));
+        if (ref != null) {
+            ClassLoaderLogInfo info = ref.get();
+            if (info != null) {
+                Logger logger = info.loggers.get(name);
+                if (logger != null) {
+                    return logger;
+                }
+            }
+        }
+
+        synchronized (this) {
+            ClassLoaderLogInfo info = getClassLoaderInfo(classLoader);
+            Object key;
+            while ((key = collectedClassLoaders.poll()) != null) {
+                classLoaderInfoCache.remove(key);
+            }
+            classLoaderInfoCache.put(new ClassLoaderKey(classLoader, collectedClassLoaders),
+                    new WeakReference<ClassLoaderLogInfo>(info));
+            return info.loggers.get(name);
+        }
     }
 
 
@@ -515,6 +565,7 @@ public class ClassLoaderLogManager extends LogManager {
         ClassLoaderLogInfo info =
             new ClassLoaderLogInfo(new LogNode(null, localRootLogger));
         classLoaderLoggers.put(classLoader, info);
+        classLoaderInfoCache.remove(new ClassLoaderLookupKey(classLoader));
 
         if (is != null) {
             readConfiguration(is, classLoader);
@@ -741,6 +792,61 @@ public class ClassLoaderLogManager extends LogManager {
     }
 
 
+    /**
+     * Key of {@link #classLoaderInfoCache}, comparing classloaders by
+     * identity. A key is only equal to itself once its classloader has been
+     * collected.
+     */
+    private static final class ClassLoaderKey extends WeakReference<ClassLoader> {
+        private final int hash;
+
+        ClassLoaderKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            this.hash = System.identityHashCode(classLoader);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (o instanceof ClassLoaderKey) {
+                ClassLoader classLoader = get();
+                return classLoader != null && classLoader == ((ClassLoaderKey) o).get();
+            }
+            return false;
+        }
+    }
+
+
+    /**
+     * Short lived key used to look up a {@link ClassLoaderKey} without
+     * creating a reference object.
+     */
+    private static final class ClassLoaderLookupKey {
+        private final ClassLoader classLoader;
+
+        ClassLoaderLookupKey(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(classLoader);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ClassLoaderKey && ((ClassLoaderKey) o).get() == classLoader;
+        }
+    }
+
+
     // ------------------------------------------------- RootLogger Inner Class
 
 
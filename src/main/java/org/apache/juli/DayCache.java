@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.juli;
+
+
+import java.util.Calendar;
+
+/**
+ * <p>Cache of the current day in the default time zone.</p>
+ *
+ * <p>Each {@link Day} holds the <code>yyyy-MM-dd</code> representation of
+ * the day together with the epoch milliseconds of its first instant and of the
+ * following midnight. Callers that only need to know whether the day has
+ * changed since they last looked can therefore do so with two
+ * <code>long</code> comparisons and without allocating anything. The cache is
+ * shared by all file handlers in the JVM so that the date string is only
+ * built once per day.</p>
+ */
+public final class DayCache {
+
+    private static volatile Day current = new Day(System.currentTimeMillis());
+
+
+    private DayCache() {
+        // Utility class. Hide default constructor.
+    }
+
+
+    /**
+     * Obtain the day that contains the given time.
+     *
+     * @param time The time in milliseconds since the epoch
+     *
+     * @return The day containing <code>time</code>
+     */
+    public static Day getDay(long time) {
+        Day day = current;
+        if (day.contains(time)) {
+            return day;
+        }
+        day = new Day(time);
+        // Only move the shared value forwards so that a caller with a stale
+        // time stamp does not force everyone else to recompute
+        if (time >= current.getEnd()) {
+            current = day;
+        }
+        return day;
+    }
+
+
+    /**
+     * A single calendar day. Instances are immutable.
+     */
+    public static final class Day {
+
+        private final String date;
+        private final long start;
+        private final long end;
+
+        private Day(long time) {
+            Calendar cal = Calendar.getInstance();
+            cal.setTimeInMillis(time);
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            start = cal.getTimeInMillis();
+
+            StringBuilder sb = new StringBuilder(10);
+            sb.append(cal.get(Calendar.YEAR));
+            sb.append('-');
+            appendTwoDigits(sb, cal.get(Calendar.MONTH) + 1);
+            sb.append('-');
+            appendTwoDigits(sb, cal.get(Calendar.DAY_OF_MONTH));
+            date = sb.toString();
+
+            cal.add(Calendar.DATE, 1);
+            end = cal.getTimeInMillis();
+        }
+
+        private static void appendTwoDigits(StringBuilder sb, int value) {
+            if (value < 10) {
+                sb.append('0');
+            }
+            sb.append(value);
+        }
+
+        /**
+         * @return The day in <code>yyyy-MM-dd</code> format
+         */
+        public String getDate() {
+            return date;
+        }
+
+        /**
+         * @return The first millisecond of the day
+         */
+        public long getStart() {
+            return start;
+        }
+
+        /**
+         * @return The first millisecond of the following day
+         */
+        public long getEnd() {
+            return end;
+        }
+
+        public boolean contains(long time) {
+            return time >= start && time < end;
+        }
+    }
+}
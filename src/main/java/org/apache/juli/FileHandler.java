@@ -19,21 +19,32 @@
 package org.apache.juli;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.*;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Implementation of <b>Handler</b> that appends log messages to a file
@@ -55,7 +66,8 @@ import java.util.regex.Pattern;
  *    Default value: <code>true</code></li>
  *   <li><code>prefix</code> - The leading part of the log file name.
  *    Default value: <code>juli.</code></li>
- *   <li><code>suffix</code> - The trailing part of the log file name. Default value: <code>.log</code></li>
+ *   <li><code>suffix</code> - The trailing part of the log file name.
+ *    Default value: <code>.log</code></li>
  *   <li><code>bufferSize</code> - Configures buffering. The value of <code>0</code>
  *    uses system default buffering (typically an 8K buffer will be used). A
  *    value of <code>&lt;0</code> forces a writer flush upon each log write. A
@@ -76,64 +88,134 @@ import java.util.regex.Pattern;
  *    files. If the specified value is <code>&lt;=0</code> then the log files
  *    will be kept on the file system forever, otherwise they will be kept the
  *    specified maximum days. Default value: <code>-1</code>.</li>
+ *   <li><code>flushPolicy</code> - When the writer is flushed. <code>record</code>
+ *    flushes after every log record, <code>batch</code> flushes once a batch
+ *    of records has been written (for {@link AsyncFileHandler} this is when
+ *    its queue has been drained; a plain <code>FileHandler</code> has no
+ *    batches, so records reach the file only when the buffers fill or when
+ *    {@link #flush()} or {@link #close()} is called), and
+ *    <code>interval</code> flushes every <code>flushInterval</code>
+ *    milliseconds if records have been written since the previous flush,
+ *    from a background thread. An unknown value is reported to the
+ *    <code>ErrorManager</code> and the default is used instead. Default
+ *    value: <code>record</code> if <code>bufferSize</code> is
+ *    <code>&lt;0</code>, otherwise unset so that flushing is left to the
+ *    buffers.</li>
+ *   <li><code>flushInterval</code> - The interval in milliseconds used by the
+ *    <code>interval</code> flush policy. Default value: <code>1000</code></li>
+ *   <li><code>fileChannel</code> - If <code>true</code>, the log file is
+ *    written through a <code>java.nio.channels.FileChannel</code> opened in
+ *    append mode rather than a <code>FileOutputStream</code>.
+ *    Default value: <code>false</code></li>
+ *   <li><code>maxFileSize</code> - The size in bytes at which the current log
+ *    file is rotated. The file is renamed to <code>{name}.{n}</code>, where
+ *    <code>n</code> is one more than the highest index in use for that file,
+ *    and a new file is started. The size is checked as bytes reach the file, so with
+ *    buffering enabled a file may exceed the limit by up to one buffer. If
+ *    the value is <code>&lt;=0</code> files are not rotated by size.
+ *    Default value: <code>-1</code></li>
+ *   <li><code>maxFiles</code> - The maximum number of files rotated because
+ *    of <code>maxFileSize</code> to keep. The oldest are deleted first. If the
+ *    value is <code>&lt;=0</code> they are not limited by count.
+ *    Default value: <code>-1</code></li>
+ *   <li><code>maxTotalSize</code> - The maximum total size in bytes of all
+ *    the log files written by this handler. The oldest files, other than the
+ *    current one, are deleted until the total is within the limit. If the
+ *    value is <code>&lt;=0</code> the total size is not limited.
+ *    Default value: <code>-1</code></li>
+ *   <li><code>compress</code> - If <code>true</code>, files are gzip
+ *    compressed after they have been rotated, either by date or by size. The
+ *    compression runs on a background thread and never blocks logging.
+ *    Default value: <code>false</code></li>
  * </ul>
  */
 public class FileHandler extends Handler {
     public static final int DEFAULT_MAX_DAYS = -1;
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+    public static final long DEFAULT_MAX_FILE_SIZE = -1;
+    public static final int DEFAULT_MAX_FILES = -1;
+    public static final long DEFAULT_MAX_TOTAL_SIZE = -1;
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    public static final String FLUSH_POLICY_RECORD = "record";
+    public static final String FLUSH_POLICY_BATCH = "batch";
+    public static final String FLUSH_POLICY_INTERVAL = "interval";
 
     private static final ExecutorService DELETE_FILES_SERVICE =
-            Executors.newSingleThreadExecutor(new ThreadFactory() {
-                private final boolean isSecurityEnabled;
-                private final ThreadGroup group;
-                private final AtomicInteger threadNumber = new AtomicInteger(1);
-                private final String namePrefix = "FileHandlerLogFilesCleaner-";
-
-                {
-                    SecurityManager s = System.getSecurityManager();
-                    this.isSecurityEnabled = s != null;
-                    this.group = isSecurityEnabled ? s.getThreadGroup()
-                            : Thread.currentThread().getThreadGroup();
-                }
+            Executors.newSingleThreadExecutor(
+                    new LoggingThreadFactory("FileHandlerLogFilesCleaner-"));
 
-                @Override
-                public Thread newThread(Runnable r) {
-                    final ClassLoader loader = Thread.currentThread().getContextClassLoader();
-                    try {
-                        // Threads should not be created by the webapp classloader
-                        if (isSecurityEnabled) {
-                            AccessController.doPrivileged(new PrivilegedAction<Void>() {
-
-                                @Override
-                                public Void run() {
-                                    Thread.currentThread()
-                                            .setContextClassLoader(getClass().getClassLoader());
-                                    return null;
-                                }
-                            });
-                        } else {
+    /*
+     * Created when the first handler with the interval flush policy is
+     * opened, so that no thread is started otherwise.
+     */
+    private static class FlushServiceHolder {
+        static final ScheduledThreadPoolExecutor FLUSH_SERVICE;
+        static {
+            FLUSH_SERVICE = new ScheduledThreadPoolExecutor(1,
+                    new LoggingThreadFactory("FileHandlerFlusher-"));
+            FLUSH_SERVICE.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    private static class LoggingThreadFactory implements ThreadFactory {
+        private final boolean isSecurityEnabled;
+        private final ThreadGroup group;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+        private final String namePrefix;
+
+        LoggingThreadFactory(String namePrefix) {
+            SecurityManager s = System.getSecurityManager();
+            this.isSecurityEnabled = s != null;
+            this.group = isSecurityEnabled ? s.getThreadGroup()
+                    : Thread.currentThread().getThreadGroup();
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            try {
+                // Threads should not be created by the webapp classloader
+                if (isSecurityEnabled) {
+                    AccessController.doPrivileged(new PrivilegedAction<Void>() {
+
+                        @Override
+                        public Void run() {
                             Thread.currentThread()
                                     .setContextClassLoader(getClass().getClassLoader());
+                            return null;
                         }
-                        Thread t = new Thread(group, r,
-                                namePrefix + threadNumber.getAndIncrement());
-                        t.setDaemon(true);
-                        return t;
-                    } finally {
-                        if (isSecurityEnabled) {
-                            AccessController.doPrivileged(new PrivilegedAction<Void>() {
-
-                                @Override
-                                public Void run() {
-                                    Thread.currentThread().setContextClassLoader(loader);
-                                    return null;
-                                }
-                            });
-                        } else {
+                    });
+                } else {
+                    Thread.currentThread()
+                            .setContextClassLoader(getClass().getClassLoader());
+                }
+                Thread t = new Thread(group, r,
+                        namePrefix + threadNumber.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            } finally {
+                if (isSecurityEnabled) {
+                    AccessController.doPrivileged(new PrivilegedAction<Void>() {
+
+                        @Override
+                        public Void run() {
                             Thread.currentThread().setContextClassLoader(loader);
+                            return null;
                         }
-                    }
+                    });
+                } else {
+                    Thread.currentThread().setContextClassLoader(loader);
                 }
-            });
+            }
+        }
+    }
+
+    private enum FlushPolicy {
+        RECORD, BATCH, INTERVAL
+    }
 
     // ------------------------------------------------------------ Constructor
 
@@ -155,6 +237,15 @@ public class FileHandler extends Handler {
         configure();
         openWriter();
         clean();
+        if (flushPolicy == FlushPolicy.INTERVAL && flushInterval > 0) {
+            flushTask = FlushServiceHolder.FLUSH_SERVICE.scheduleWithFixedDelay(
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            flushIfPending();
+                        }
+                    }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
 
@@ -162,10 +253,10 @@ public class FileHandler extends Handler {
 
 
     /**
-     * The as-of date for the currently open log file, or a zero-length
-     * string if there is no open log file.
+     * The as-of day for the currently open log file, or <code>null</code> if
+     * there is no open log file.
      */
-    private volatile String date = "";
+    private volatile DayCache.Day day = null;
 
 
     /**
@@ -198,12 +289,70 @@ public class FileHandler extends Handler {
     private int maxDays = DEFAULT_MAX_DAYS;
 
 
+    /**
+     * Size in bytes at which the current log file is rotated
+     */
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+
+
+    /**
+     * Maximum number of size rotated log files to keep
+     */
+    private int maxFiles = DEFAULT_MAX_FILES;
+
+
+    /**
+     * Maximum total size in bytes of the log files
+     */
+    private long maxTotalSize = DEFAULT_MAX_TOTAL_SIZE;
+
+
+    /**
+     * Determines whether rotated log files are compressed
+     */
+    private boolean compress = false;
+
+
     /**
      * The PrintWriter to which we are currently logging, if any.
      */
     private volatile PrintWriter writer = null;
 
 
+    /**
+     * The stream beneath the current writer, if any.
+     */
+    private volatile OutputStream outputStream = null;
+
+
+    /**
+     * The writer directly beneath {@link #writer}, if any. It is the lock
+     * the writer holds while it passes text on to the stream, so holding it
+     * keeps bytes written directly to the stream from splitting text.
+     */
+    private volatile Writer streamWriter = null;
+
+
+    /**
+     * Set when text has been written to the writer that it may not have
+     * passed on to the stream yet, see {@link #publish(byte[], int, int)}.
+     * Guarded by {@link #streamWriter}.
+     */
+    private boolean textPending = false;
+
+
+    /**
+     * The file the current writer writes to, if any.
+     */
+    private volatile File currentFile = null;
+
+
+    /**
+     * Counts the bytes written to the current file, if any.
+     */
+    private volatile CountingOutputStream counter = null;
+
+
     /**
      * Lock used to control access to the writer.
      */
@@ -217,12 +366,54 @@ public class FileHandler extends Handler {
 
 
     /**
-     * Represents a file name pattern of type {prefix}{date}{suffix}.
+     * Flush policy, parsed from one of the <code>FLUSH_POLICY_*</code>
+     * constants, or <code>null</code> if the writer is only flushed when it
+     * is closed or when {@link #flush()} is called.
+     */
+    private FlushPolicy flushPolicy = null;
+
+
+    /**
+     * Flush interval in milliseconds for {@link #FLUSH_POLICY_INTERVAL}.
+     */
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+
+    /**
+     * Set when records have been written since the last timed flush, used by
+     * {@link #FLUSH_POLICY_INTERVAL}.
+     */
+    private volatile boolean flushPending = false;
+
+
+    /**
+     * The timed flush of {@link #FLUSH_POLICY_INTERVAL}, if scheduled.
+     */
+    private volatile ScheduledFuture<?> flushTask = null;
+
+
+    /**
+     * Determines whether the log file is written through a FileChannel.
+     */
+    private boolean fileChannel = false;
+
+
+    /**
+     * Represents a file name pattern of type {prefix}{date}{suffix}, optionally
+     * followed by the index and compression suffix of a rotated file.
      * The date is YYYY-MM-DD
      */
     private Pattern pattern;
 
 
+    /**
+     * Represents the file name pattern of a file rotated because of its size,
+     * {prefix}[{date}]{suffix}.{n}, optionally followed by the compression
+     * suffix.
+     */
+    private Pattern sizeRotatedPattern;
+
+
     // --------------------------------------------------------- Public Methods
 
 
@@ -238,32 +429,11 @@ public class FileHandler extends Handler {
             return;
         }
 
-        // Construct the timestamp we will use, if requested
-        Timestamp ts = new Timestamp(System.currentTimeMillis());
-        String tsDate = ts.toString().substring(0, 10);
+        long now = System.currentTimeMillis();
 
         writerLock.readLock().lock();
         try {
-            // If the date has changed, switch log files
-            if (rotatable && !date.equals(tsDate)) {
-                // Upgrade to writeLock before we switch
-                writerLock.readLock().unlock();
-                writerLock.writeLock().lock();
-                try {
-                    // Make sure another thread hasn't already done this
-                    if (!date.equals(tsDate)) {
-                        closeWriter();
-                        date = tsDate;
-                        openWriter();
-                        clean();
-                    }
-                } finally {
-                    // Downgrade to read-lock. This ensures the writer remains valid
-                    // until the log message is written
-                    writerLock.readLock().lock();
-                    writerLock.writeLock().unlock();
-                }
-            }
+            rotateIfNecessary(now);
 
             String result = null;
             try {
@@ -275,9 +445,14 @@ public class FileHandler extends Handler {
 
             try {
                 if (writer != null) {
-                    writer.write(result);
-                    if (bufferSize < 0) {
+                    synchronized (streamWriter) {
+                        writer.write(result);
+                        textPending = true;
+                    }
+                    if (flushPolicy == FlushPolicy.RECORD) {
                         writer.flush();
+                    } else if (flushPolicy == FlushPolicy.INTERVAL) {
+                        flushPending = true;
                     }
                 } else {
                     reportError("FileHandler is closed or not yet initialized, unable to log ["
@@ -292,6 +467,117 @@ public class FileHandler extends Handler {
     }
 
 
+    /**
+     * Publish a record that has already been encoded to bytes, bypassing the
+     * character based writer. This is intended for handlers with formatters
+     * that encode directly to bytes, such as {@link JsonFileHandler}.
+     *
+     * @param b   The buffer holding the encoded record
+     * @param off The offset of the record in the buffer
+     * @param len The length of the record
+     */
+    protected void publish(byte[] b, int off, int len) {
+
+        long now = System.currentTimeMillis();
+
+        writerLock.readLock().lock();
+        try {
+            rotateIfNecessary(now);
+
+            try {
+                if (outputStream != null) {
+                    // The stream is shared with the text written by
+                    // publish(LogRecord), so only the write itself excludes
+                    // the other writers
+                    synchronized (streamWriter) {
+                        if (textPending) {
+                            // Text must reach the stream before the bytes
+                            // that follow it
+                            writer.flush();
+                            textPending = false;
+                        }
+                        outputStream.write(b, off, len);
+                    }
+                    if (flushPolicy == FlushPolicy.RECORD) {
+                        outputStream.flush();
+                    } else if (flushPolicy == FlushPolicy.INTERVAL) {
+                        flushPending = true;
+                    }
+                } else {
+                    reportError("FileHandler is closed or not yet initialized, unable to log ["
+                            + len + "] bytes", null, ErrorManager.WRITE_FAILURE);
+                }
+            } catch (Exception e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        } finally {
+            writerLock.readLock().unlock();
+        }
+    }
+
+
+    /*
+     * Must be called with the read lock held. The read lock is still held when
+     * this method returns.
+     */
+    private void rotateIfNecessary(long now) {
+        // If the date has changed or the file is full, switch log files
+        if ((rotatable && !isCurrent(day, now)) || isFull()) {
+            // Upgrade to writeLock before we switch
+            writerLock.readLock().unlock();
+            writerLock.writeLock().lock();
+            try {
+                // Make sure another thread hasn't already done this
+                if (rotatable && !isCurrent(day, now)) {
+                    File previous = currentFile;
+                    closeWriter();
+                    if (compress && previous != null) {
+                        compress(previous);
+                    }
+                    day = DayCache.getDay(now);
+                    openWriter();
+                    clean();
+                } else if (isFull()) {
+                    File previous = currentFile;
+                    closeWriter();
+                    if (previous != null) {
+                        archive(previous);
+                    }
+                    openWriter();
+                    clean();
+                }
+            } finally {
+                // Downgrade to read-lock. This ensures the writer remains valid
+                // until the log message is written
+                writerLock.readLock().lock();
+                writerLock.writeLock().unlock();
+            }
+        }
+    }
+
+
+    private static boolean isCurrent(DayCache.Day day, long time) {
+        return day != null && day.contains(time);
+    }
+
+
+    private boolean isFull() {
+        CountingOutputStream counter = this.counter;
+        return maxFileSize > 0 && counter != null && counter.getCount() >= maxFileSize;
+    }
+
+
+    /**
+     * Flush the writer if the flush policy is {@link #FLUSH_POLICY_BATCH}.
+     * Called once a batch of records has been published.
+     */
+    protected void flushBatch() {
+        if (flushPolicy == FlushPolicy.BATCH) {
+            flush();
+        }
+    }
+
+
     // -------------------------------------------------------- Private Methods
 
 
@@ -300,6 +586,10 @@ public class FileHandler extends Handler {
      */
     @Override
     public void close() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
         closeWriter();
     }
 
@@ -314,7 +604,11 @@ public class FileHandler extends Handler {
             writer.flush();
             writer.close();
             writer = null;
-            date = "";
+            streamWriter = null;
+            outputStream = null;
+            currentFile = null;
+            counter = null;
+            day = null;
         } catch (Exception e) {
             reportError(null, e, ErrorManager.CLOSE_FAILURE);
         } finally {
@@ -323,6 +617,18 @@ public class FileHandler extends Handler {
     }
 
 
+    /*
+     * Runs every flushInterval milliseconds for the interval flush policy, so
+     * that records are flushed even if no other record follows them.
+     */
+    private void flushIfPending() {
+        if (flushPending) {
+            flushPending = false;
+            flush();
+        }
+    }
+
+
     /**
      * Flush the writer.
      */
@@ -349,9 +655,7 @@ public class FileHandler extends Handler {
      */
     private void configure() {
 
-        Timestamp ts = new Timestamp(System.currentTimeMillis());
-        String tsString = ts.toString().substring(0, 19);
-        date = tsString.substring(0, 10);
+        day = DayCache.getDay(System.currentTimeMillis());
 
         String className = this.getClass().getName(); //allow classes to override
 
@@ -379,8 +683,11 @@ public class FileHandler extends Handler {
             suffix = suffix.substring(1);
         }
 
-        pattern = Pattern.compile("^(" + Pattern.quote(prefix) + ")\\d{4}-\\d{1,2}-\\d{1,2}("
-                + Pattern.quote(suffix) + ")$");
+        pattern = Pattern.compile("^" + Pattern.quote(prefix) + "(\\d{4}-\\d{1,2}-\\d{1,2})"
+                + Pattern.quote(suffix) + "(\\.\\d+)?(" + Pattern.quote(GZIP_SUFFIX) + ")?$");
+        sizeRotatedPattern = Pattern.compile("^" + Pattern.quote(prefix)
+                + "(\\d{4}-\\d{1,2}-\\d{1,2})?" + Pattern.quote(suffix) + "\\.\\d+("
+                + Pattern.quote(GZIP_SUFFIX) + ")?$");
         String sMaxDays = getProperty(className + ".maxDays", String.valueOf(DEFAULT_MAX_DAYS));
         if (maxDays <= 0) {
             try {
@@ -395,6 +702,47 @@ public class FileHandler extends Handler {
         } catch (NumberFormatException ignore) {
             //no op
         }
+        String sFlushPolicy = getProperty(className + ".flushPolicy",
+                bufferSize < 0 ? FLUSH_POLICY_RECORD : null);
+        if (FLUSH_POLICY_RECORD.equals(sFlushPolicy)) {
+            flushPolicy = FlushPolicy.RECORD;
+        } else if (FLUSH_POLICY_BATCH.equals(sFlushPolicy)) {
+            flushPolicy = FlushPolicy.BATCH;
+        } else if (FLUSH_POLICY_INTERVAL.equals(sFlushPolicy)) {
+            flushPolicy = FlushPolicy.INTERVAL;
+        } else if (sFlushPolicy != null) {
+            reportError("Unknown flushPolicy [" + sFlushPolicy + "], using the default", null,
+                    ErrorManager.GENERIC_FAILURE);
+            flushPolicy = bufferSize < 0 ? FlushPolicy.RECORD : null;
+        }
+        String sFlushInterval = getProperty(className + ".flushInterval",
+                String.valueOf(flushInterval));
+        try {
+            flushInterval = Long.parseLong(sFlushInterval);
+        } catch (NumberFormatException ignore) {
+            //no op
+        }
+        fileChannel = Boolean.parseBoolean(getProperty(className + ".fileChannel", "false"));
+        String sMaxFileSize = getProperty(className + ".maxFileSize", String.valueOf(maxFileSize));
+        try {
+            maxFileSize = Long.parseLong(sMaxFileSize);
+        } catch (NumberFormatException ignore) {
+            //no op
+        }
+        String sMaxFiles = getProperty(className + ".maxFiles", String.valueOf(maxFiles));
+        try {
+            maxFiles = Integer.parseInt(sMaxFiles);
+        } catch (NumberFormatException ignore) {
+            //no op
+        }
+        String sMaxTotalSize = getProperty(className + ".maxTotalSize",
+                String.valueOf(maxTotalSize));
+        try {
+            maxTotalSize = Long.parseLong(sMaxTotalSize);
+        } catch (NumberFormatException ignore) {
+            //no op
+        }
+        compress = Boolean.parseBoolean(getProperty(className + ".compress", "false"));
         // Get encoding for the logging file
         String encoding = getProperty(className + ".encoding", null);
         if (encoding != null && encoding.length() > 0) {
@@ -448,7 +796,7 @@ public class FileHandler extends Handler {
 
 
     /**
-     * Open the new log file for the date specified by <code>date</code>.
+     * Open the new log file for the day specified by <code>day</code>.
      */
     protected void open() {
         openWriter();
@@ -466,11 +814,14 @@ public class FileHandler extends Handler {
 
         // Open the current log file
         writerLock.writeLock().lock();
-        FileOutputStream fos = null;
+        OutputStream fos = null;
         OutputStream os = null;
         try {
+            if (rotatable && day == null) {
+                day = DayCache.getDay(System.currentTimeMillis());
+            }
             File pathname = new File(dir.getAbsoluteFile(), prefix
-                    + (rotatable ? date : "") + suffix);
+                    + (rotatable ? day.getDate() : "") + suffix);
             File parent = pathname.getParentFile();
             if (!parent.mkdirs() && !parent.isDirectory()) {
                 reportError("Unable to create [" + parent + "]", null, ErrorManager.OPEN_FAILURE);
@@ -478,12 +829,25 @@ public class FileHandler extends Handler {
                 return;
             }
             String encoding = getEncoding();
-            fos = new FileOutputStream(pathname, true);
-            os = bufferSize > 0 ? new BufferedOutputStream(fos, bufferSize) : fos;
-            writer = new PrintWriter(
-                    (encoding != null) ? new OutputStreamWriter(os, encoding)
-                                       : new OutputStreamWriter(os), false);
+            if (fileChannel) {
+                fos = Channels.newOutputStream(FileChannel.open(pathname.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND));
+            } else {
+                fos = new FileOutputStream(pathname, true);
+            }
+            CountingOutputStream cos = new CountingOutputStream(fos, pathname.length());
+            os = bufferSize > 0 ? new BufferedOutputStream(cos, bufferSize) : cos;
+            streamWriter = (encoding != null) ? new OutputStreamWriter(os, encoding)
+                                              : new OutputStreamWriter(os);
+            writer = new PrintWriter(streamWriter, false);
             writer.write(getFormatter().getHead(this));
+            // Make sure the head is written before anything written directly
+            // to the stream
+            writer.flush();
+            outputStream = os;
+            currentFile = pathname;
+            counter = cos;
         } catch (Exception e) {
             reportError(null, e, ErrorManager.OPEN_FAILURE);
             writer = null;
@@ -506,24 +870,176 @@ public class FileHandler extends Handler {
         }
     }
 
-    private void clean() {
-        if (maxDays <= 0) {
+    /**
+     * Move a log file that has reached <code>maxFileSize</code> out of the way
+     * and, if configured, compress it in the background.
+     *
+     * @param file The log file, which must not be open
+     */
+    private void archive(File file) {
+        // Use the index after the highest one in use so that indexes keep
+        // increasing as older files are removed
+        final String base = file.getName() + ".";
+        int index = 0;
+        String[] names = file.getParentFile().list(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(base);
+            }
+        });
+        if (names != null) {
+            for (String name : names) {
+                String n = name.substring(base.length());
+                if (n.endsWith(GZIP_SUFFIX)) {
+                    n = n.substring(0, n.length() - GZIP_SUFFIX.length());
+                }
+                try {
+                    index = Math.max(index, Integer.parseInt(n));
+                } catch (NumberFormatException ignore) {
+                    // Not a rotated file
+                }
+            }
+        }
+        File target = new File(file.getPath() + "." + (index + 1));
+        if (!file.renameTo(target)) {
+            reportError("Unable to rename [" + file + "] to [" + target + "]", null,
+                    ErrorManager.GENERIC_FAILURE);
             return;
         }
+        if (compress) {
+            compress(target);
+        }
+    }
+
+    private void compress(final File file) {
         DELETE_FILES_SERVICE.submit(new Runnable() {
 
             @Override
             public void run() {
-                for (File file : streamFilesForDelete()) {
+                File target = new File(file.getPath() + GZIP_SUFFIX);
+                byte[] buf = new byte[8192];
+                boolean ok = false;
+                try (InputStream is = new FileInputStream(file);
+                        OutputStream os = new GZIPOutputStream(
+                                new FileOutputStream(target), buf.length)) {
+                    int n;
+                    while ((n = is.read(buf)) >= 0) {
+                        os.write(buf, 0, n);
+                    }
+                    ok = true;
+                } catch (IOException e) {
+                    reportError("Unable to compress [" + file + "]", e,
+                            ErrorManager.GENERIC_FAILURE);
+                }
+                if (ok) {
+                    // Keep the original time stamp so retention by age still
+                    // sees the files in the order they were written
+                    target.setLastModified(file.lastModified());
                     if (!file.delete()) {
-                        reportError("Unable to delete log files older than [" + maxDays + "] days",
-                                null, ErrorManager.GENERIC_FAILURE);
+                        reportError("Unable to delete [" + file + "] after compression", null,
+                                ErrorManager.GENERIC_FAILURE);
+                    }
+                } else if (target.exists() && !target.delete()) {
+                    reportError("Unable to delete [" + target + "]", null,
+                            ErrorManager.GENERIC_FAILURE);
+                }
+            }
+        });
+    }
+
+    private void clean() {
+        if (maxDays <= 0 && maxFiles <= 0 && maxTotalSize <= 0) {
+            return;
+        }
+        DELETE_FILES_SERVICE.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                if (maxDays > 0) {
+                    File[] files = streamFilesForDelete();
+                    if (files != null) {
+                        for (File file : files) {
+                            if (!file.delete()) {
+                                reportError("Unable to delete log files older than [" + maxDays
+                                        + "] days", null, ErrorManager.GENERIC_FAILURE);
+                            }
+                        }
+                    }
+                }
+                if (maxFiles > 0) {
+                    File[] files = listFilesOldestFirst(sizeRotatedPattern);
+                    for (int i = 0; i < files.length - maxFiles; i++) {
+                        if (!files[i].delete()) {
+                            reportError("Unable to delete log files beyond [" + maxFiles
+                                    + "] files", null, ErrorManager.GENERIC_FAILURE);
+                        }
+                    }
+                }
+                if (maxTotalSize > 0) {
+                    File[] files = listFilesOldestFirst(null);
+                    long total = 0;
+                    for (File file : files) {
+                        total += file.length();
+                    }
+                    File current = currentFile;
+                    for (int i = 0; i < files.length && total > maxTotalSize; i++) {
+                        if (files[i].equals(current)) {
+                            continue;
+                        }
+                        long length = files[i].length();
+                        if (files[i].delete()) {
+                            total -= length;
+                        } else {
+                            reportError("Unable to delete log files beyond [" + maxTotalSize
+                                    + "] bytes", null, ErrorManager.GENERIC_FAILURE);
+                        }
                     }
                 }
             }
         });
     }
 
+    /**
+     * List the log files written by this handler, oldest first.
+     *
+     * @param filePattern The pattern the names must match or
+     *                    <code>null</code> for all the log files
+     *
+     * @return The matching files, never <code>null</code>
+     */
+    private File[] listFilesOldestFirst(final Pattern filePattern) {
+        final String plainName = prefix + suffix;
+        // Absolute, like currentFile, so that the open file can be recognised
+        File[] files = new File(directory).getAbsoluteFile().listFiles(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String name) {
+                if (filePattern != null) {
+                    return filePattern.matcher(name).matches();
+                }
+                return name.equals(plainName) || pattern.matcher(name).matches()
+                        || sizeRotatedPattern.matcher(name).matches();
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        // Read the time stamps once as they may change while sorting
+        final Map<File,Long> modified = new HashMap<File,Long>();
+        for (File file : files) {
+            modified.put(file, Long.valueOf(file.lastModified()));
+        }
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File f1, File f2) {
+                return modified.get(f1).compareTo(modified.get(f2));
+            }
+        });
+        return files;
+    }
+
     private File[] streamFilesForDelete() {
         final Date maxDaysOffset = getMaxDaysOffset();
         final SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
@@ -547,10 +1063,9 @@ public class FileHandler extends Handler {
     }
 
     private String obtainDateFromFilename(String name) {
-        String date = name;
-        if (pattern.matcher(date).matches()) {
-            date = date.substring(prefix.length());
-            return date.substring(0, date.length() - suffix.length());
+        Matcher matcher = pattern.matcher(name);
+        if (matcher.matches()) {
+            return matcher.group(1);
         } else {
             return null;
         }
@@ -565,4 +1080,35 @@ public class FileHandler extends Handler {
         cal.add(Calendar.DATE, -maxDays);
         return cal.getTime();
     }
+
+
+    /**
+     * Counts the bytes that reach the log file so that size based rotation
+     * does not need to query the file system for every record.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private volatile long count;
+
+        public CountingOutputStream(OutputStream out, long initialCount) {
+            super(out);
+            this.count = initialCount;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
 }
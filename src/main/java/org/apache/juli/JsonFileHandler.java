@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.juli;
+
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * A {@link FileHandler} that writes records encoded by a {@link JsonFormatter}
+ * straight to the log file as UTF-8 bytes. Records are never converted to a
+ * String and the configured <code>encoding</code> is ignored.
+ *
+ * <p>The configuration properties are those of {@link FileHandler}. If the
+ * configured <code>formatter</code> is not a {@link JsonFormatter}, a
+ * {@link JsonFormatter} is used instead.</p>
+ */
+public class JsonFileHandler extends FileHandler {
+
+    public JsonFileHandler() {
+        this(null, null, null, DEFAULT_MAX_DAYS);
+    }
+
+
+    public JsonFileHandler(String directory, String prefix, String suffix) {
+        this(directory, prefix, suffix, DEFAULT_MAX_DAYS);
+    }
+
+
+    public JsonFileHandler(String directory, String prefix, String suffix, int maxDays) {
+        super(directory, prefix, suffix, maxDays);
+        if (!(getFormatter() instanceof JsonFormatter)) {
+            setFormatter(new JsonFormatter());
+        }
+    }
+
+
+    @Override
+    public void publish(LogRecord record) {
+
+        if (!isLoggable(record)) {
+            return;
+        }
+
+        Formatter formatter = getFormatter();
+        if (!(formatter instanceof JsonFormatter)) {
+            // Formatter replaced after construction
+            super.publish(record);
+            return;
+        }
+
+        JsonFormatter.RecordBuffer buf;
+        try {
+            buf = ((JsonFormatter) formatter).encode(record);
+        } catch (Exception e) {
+            reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        publish(buf.getBytes(), 0, buf.getLength());
+    }
+}
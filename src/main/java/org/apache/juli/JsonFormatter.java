@@ -0,0 +1,474 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.juli;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Formatter;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+/**
+ * Outputs each log record as a single JSON object, one object per line (JSON
+ * Lines). Records are encoded directly into a reusable UTF-8 byte buffer so
+ * that {@link JsonFileHandler} can write them without creating intermediate
+ * Strings. An example record:
+ *
+ * <pre>
+ * {"time":1130122891846,"level":"SEVERE","logger":"org.apache.jasper.compiler.Compiler",
+ *  "thread":1,"class":"org.apache.jasper.compiler.Compiler","method":"compile",
+ *  "message":"...","thrown":{"class":"org.apache.jasper.JasperException",
+ *  "message":"...","stackTrace":["..."],"cause":{...}}}
+ * </pre>
+ *
+ * <p>Exceptions, such as the <code>JasperException</code>s that carry JSP
+ * compilation errors, are written as structured objects that include the full
+ * multi-line message, each stack frame and the chain of causes. Any record
+ * parameters are written as an array of Strings.</p>
+ *
+ * <p>The following configuration properties are available:</p>
+ *
+ * <ul>
+ *   <li><code>binary</code> - If <code>true</code>, each record written by
+ *    {@link JsonFileHandler} is preceded by its length in bytes as a 4 byte big
+ *    endian integer and is not followed by a line separator. This allows
+ *    downstream consumers to read records without scanning for the end of the
+ *    line. This has no effect on {@link #format(LogRecord)}.
+ *    Default value: <code>false</code></li>
+ * </ul>
+ */
+public class JsonFormatter extends Formatter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The maximum depth of causes that will be written for an exception.
+     */
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    /**
+     * Buffers that have grown beyond this size while encoding an unusually
+     * large record are discarded rather than retained by the thread.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Returns the thread ID of a record as a long. LogRecord.getThreadID() is
+     * deprecated, and truncates IDs, where the replacement getLongThreadID()
+     * is available.
+     */
+    private static final MethodHandle THREAD_ID;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        MethodHandle threadId;
+        try {
+            threadId = lookup.findVirtual(LogRecord.class, "getLongThreadID",
+                    MethodType.methodType(long.class));
+        } catch (ReflectiveOperationException e) {
+            try {
+                threadId = lookup.findVirtual(LogRecord.class, "getThreadID",
+                        MethodType.methodType(int.class)).asType(
+                                MethodType.methodType(long.class, LogRecord.class));
+            } catch (ReflectiveOperationException e2) {
+                throw new ExceptionInInitializerError(e2);
+            }
+        }
+        THREAD_ID = threadId;
+    }
+
+    private static final ThreadLocal<RecordBuffer> buffer = new ThreadLocal<RecordBuffer>() {
+        @Override
+        protected RecordBuffer initialValue() {
+            return new RecordBuffer();
+        }
+    };
+
+    private boolean binary = false;
+
+
+    public JsonFormatter() {
+        String binary = LogManager.getLogManager().getProperty(
+                JsonFormatter.class.getName() + ".binary");
+        if (binary != null) {
+            setBinary(Boolean.parseBoolean(binary.trim()));
+        }
+    }
+
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+
+    @Override
+    public String format(LogRecord record) {
+        // See encode()
+        String message = formatMessage(record);
+        String[] parameters = formatParameters(record);
+        ThrowableInfo thrown = describeThrowable(record.getThrown());
+
+        RecordBuffer buf = getBuffer();
+        encodeRecord(buf, record, message, parameters, thrown);
+        buf.append('\n');
+        return new String(buf.getBytes(), 0, buf.getLength(), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Encode a record into a buffer owned by the current thread. The returned
+     * buffer is only valid until the next call to this method from the same
+     * thread.
+     *
+     * @param record The record to encode
+     *
+     * @return The buffer holding the encoded record, including the line
+     *         separator or length prefix
+     */
+    public RecordBuffer encode(LogRecord record) {
+        // Format the message, parameters and exception before taking the
+        // buffer as formatting them may log and so re-enter this method on
+        // the same thread
+        String message = formatMessage(record);
+        String[] parameters = formatParameters(record);
+        ThrowableInfo thrown = describeThrowable(record.getThrown());
+
+        RecordBuffer buf = getBuffer();
+        if (binary) {
+            // Reserve space for the length
+            buf.ensureCapacity(4);
+            buf.length = 4;
+            encodeRecord(buf, record, message, parameters, thrown);
+            int len = buf.length - 4;
+            buf.bytes[0] = (byte) (len >>> 24);
+            buf.bytes[1] = (byte) (len >>> 16);
+            buf.bytes[2] = (byte) (len >>> 8);
+            buf.bytes[3] = (byte) len;
+        } else {
+            encodeRecord(buf, record, message, parameters, thrown);
+            buf.append('\n');
+        }
+        return buf;
+    }
+
+
+    private static RecordBuffer getBuffer() {
+        RecordBuffer buf = buffer.get();
+        if (buf.getBytes().length > MAX_RETAINED_BUFFER_SIZE) {
+            buf = new RecordBuffer();
+            buffer.set(buf);
+        } else {
+            buf.reset();
+        }
+        return buf;
+    }
+
+
+    private static String[] formatParameters(LogRecord record) {
+        Object[] parameters = record.getParameters();
+        if (parameters == null || parameters.length == 0) {
+            return null;
+        }
+        String[] result = new String[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            result[i] = String.valueOf(parameters[i]);
+        }
+        return result;
+    }
+
+
+    private static ThrowableInfo describeThrowable(Throwable t) {
+        if (t == null) {
+            return null;
+        }
+        Map<Throwable,Boolean> seen = new IdentityHashMap<Throwable,Boolean>();
+        ThrowableInfo first = new ThrowableInfo(t);
+        seen.put(t, Boolean.TRUE);
+        ThrowableInfo last = first;
+        Throwable cause = t.getCause();
+        for (int depth = 0; cause != null && !seen.containsKey(cause) &&
+                depth < MAX_CAUSE_DEPTH; depth++) {
+            seen.put(cause, Boolean.TRUE);
+            last.cause = new ThrowableInfo(cause);
+            last = last.cause;
+            cause = cause.getCause();
+        }
+        return first;
+    }
+
+
+    private static long getThreadId(LogRecord record) {
+        try {
+            return (long) THREAD_ID.invokeExact(record);
+        } catch (Throwable t) {
+            // Neither method throws
+            throw new IllegalStateException(t);
+        }
+    }
+
+
+    private void encodeRecord(RecordBuffer buf, LogRecord record, String message,
+            String[] parameters, ThrowableInfo thrown) {
+        buf.appendAscii("{\"time\":");
+        buf.appendNumber(record.getMillis());
+        buf.appendAscii(",\"level\":");
+        buf.appendString(record.getLevel().getName());
+        if (record.getLoggerName() != null) {
+            buf.appendAscii(",\"logger\":");
+            buf.appendString(record.getLoggerName());
+        }
+        buf.appendAscii(",\"thread\":");
+        buf.appendNumber(getThreadId(record));
+        if (record.getSourceClassName() != null) {
+            buf.appendAscii(",\"class\":");
+            buf.appendString(record.getSourceClassName());
+        }
+        if (record.getSourceMethodName() != null) {
+            buf.appendAscii(",\"method\":");
+            buf.appendString(record.getSourceMethodName());
+        }
+        buf.appendAscii(",\"message\":");
+        buf.appendString(message);
+
+        if (parameters != null) {
+            buf.appendAscii(",\"parameters\":[");
+            for (int i = 0; i < parameters.length; i++) {
+                if (i > 0) {
+                    buf.append(',');
+                }
+                buf.appendString(parameters[i]);
+            }
+            buf.append(']');
+        }
+
+        if (thrown != null) {
+            buf.appendAscii(",\"thrown\":");
+            encodeThrowable(buf, thrown);
+        }
+        buf.append('}');
+    }
+
+
+    private static void encodeThrowable(RecordBuffer buf, ThrowableInfo t) {
+        buf.appendAscii("{\"class\":");
+        buf.appendString(t.className);
+        if (t.message != null) {
+            buf.appendAscii(",\"message\":");
+            buf.appendString(t.message);
+        }
+        buf.appendAscii(",\"stackTrace\":[");
+        StackTraceElement[] frames = t.frames;
+        for (int i = 0; i < frames.length; i++) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            StackTraceElement frame = frames[i];
+            buf.append('"');
+            buf.appendEscaped(frame.getClassName());
+            buf.append('.');
+            buf.appendEscaped(frame.getMethodName());
+            buf.append('(');
+            if (frame.isNativeMethod()) {
+                buf.appendAscii("Native Method");
+            } else if (frame.getFileName() == null) {
+                buf.appendAscii("Unknown Source");
+            } else {
+                buf.appendEscaped(frame.getFileName());
+                if (frame.getLineNumber() >= 0) {
+                    buf.append(':');
+                    buf.appendNumber(frame.getLineNumber());
+                }
+            }
+            buf.append(')');
+            buf.append('"');
+        }
+        buf.append(']');
+        if (t.cause != null) {
+            buf.appendAscii(",\"cause\":");
+            encodeThrowable(buf, t.cause);
+        }
+        buf.append('}');
+    }
+
+
+    /**
+     * The parts of an exception that are written, read from it before the
+     * record buffer is taken.
+     */
+    private static final class ThrowableInfo {
+
+        final String className;
+        final String message;
+        final StackTraceElement[] frames;
+        ThrowableInfo cause;
+
+        ThrowableInfo(Throwable t) {
+            className = t.getClass().getName();
+            message = t.getMessage();
+            frames = t.getStackTrace();
+        }
+    }
+
+
+    /**
+     * A growable byte buffer holding an encoded record.
+     */
+    public static class RecordBuffer {
+
+        private byte[] bytes = new byte[512];
+        private int length = 0;
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                byte[] newBytes = new byte[Math.max(bytes.length * 2, length + extra)];
+                System.arraycopy(bytes, 0, newBytes, 0, length);
+                bytes = newBytes;
+            }
+        }
+
+        void append(char c) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) c;
+        }
+
+        void appendAscii(String s) {
+            int len = s.length();
+            ensureCapacity(len);
+            for (int i = 0; i < len; i++) {
+                bytes[length++] = (byte) s.charAt(i);
+            }
+        }
+
+        void appendNumber(long value) {
+            if (value == Long.MIN_VALUE) {
+                appendAscii("-9223372036854775808");
+                return;
+            }
+            ensureCapacity(20);
+            if (value < 0) {
+                bytes[length++] = '-';
+                value = -value;
+            }
+            int start = length;
+            do {
+                bytes[length++] = (byte) ('0' + (value % 10));
+                value /= 10;
+            } while (value > 0);
+            // Digits were written least significant first
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte b = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = b;
+            }
+        }
+
+        void appendString(String s) {
+            if (s == null) {
+                appendAscii("null");
+                return;
+            }
+            append('"');
+            appendEscaped(s);
+            append('"');
+        }
+
+        /*
+         * Escapes and UTF-8 encodes the String in a single pass directly into
+         * the buffer.
+         */
+        void appendEscaped(String s) {
+            int len = s.length();
+            // Worst case is 3 bytes per char (6 for escaped control chars
+            // but those are rare enough to be handled below)
+            ensureCapacity(len * 3);
+            for (int i = 0; i < len; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (c < 0x20 || c == '"' || c == '\\') {
+                        ensureCapacity(6 + (len - i) * 3);
+                        bytes[length++] = '\\';
+                        switch (c) {
+                            case '"':
+                                bytes[length++] = '"';
+                                break;
+                            case '\\':
+                                bytes[length++] = '\\';
+                                break;
+                            case '\n':
+                                bytes[length++] = 'n';
+                                break;
+                            case '\r':
+                                bytes[length++] = 'r';
+                                break;
+                            case '\t':
+                                bytes[length++] = 't';
+                                break;
+                            default:
+                                bytes[length++] = 'u';
+                                bytes[length++] = '0';
+                                bytes[length++] = '0';
+                                bytes[length++] = HEX[c >> 4];
+                                bytes[length++] = HEX[c & 0xF];
+                        }
+                    } else {
+                        bytes[length++] = (byte) c;
+                    }
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < len
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    // Two chars already reserved 6 bytes, 4 are needed
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | (cp >> 18));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate
+                    bytes[length++] = '?';
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+    }
+}
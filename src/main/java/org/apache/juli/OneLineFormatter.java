@@ -22,9 +22,6 @@ import java.io.Writer;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.logging.Formatter;
 import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
@@ -41,13 +38,21 @@ public class OneLineFormatter extends Formatter {
 
     private static final String LINE_SEP = System.getProperty("line.separator");
     private static final String UNKNOWN_THREAD_NAME = "Unknown thread with ID ";
-    private static final Object threadMxBeanLock = new Object();
-    private static volatile ThreadMXBean threadMxBean = null;
-    private static final int THREAD_NAME_CACHE_SIZE = 10000;
-    private static ThreadLocal<ThreadNameCache> threadNameCache = new ThreadLocal<ThreadNameCache>() {
+    private static final int THREAD_NAME_CACHE_SIZE = 16384;
+    private static final ThreadNameCache threadNameCache =
+            new ThreadNameCache(THREAD_NAME_CACHE_SIZE);
+
+    /**
+     * Initial capacity of the per thread buffer records are formatted into.
+     * Buffers that have grown beyond {@link #MAX_RETAINED_BUFFER_SIZE} while
+     * formatting an unusually large record are discarded rather than retained.
+     */
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 8192;
+    private static final ThreadLocal<StringBuilder> buffer = new ThreadLocal<StringBuilder>() {
         @Override
-        protected ThreadNameCache initialValue() {
-            return new ThreadNameCache(THREAD_NAME_CACHE_SIZE);
+        protected StringBuilder initialValue() {
+            return new StringBuilder(INITIAL_BUFFER_SIZE);
         }
     };
 
@@ -110,7 +115,26 @@ public class OneLineFormatter extends Formatter {
 
     @Override
     public String format(LogRecord record) {
-        StringBuilder sb = new StringBuilder();
+        // Format the message and the stack trace before taking the buffer as
+        // formatting the parameters or the throwable may log and so re-enter
+        // this method on the same thread
+        String message = formatMessage(record);
+        String stackTrace = null;
+        if (record.getThrown() != null) {
+            StringWriter sw = new StringWriter();
+            PrintWriter pw = new IndentingPrintWriter(sw);
+            record.getThrown().printStackTrace(pw);
+            pw.close();
+            stackTrace = sw.toString();
+        }
+
+        StringBuilder sb = buffer.get();
+        if (sb.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            sb = new StringBuilder(INITIAL_BUFFER_SIZE);
+            buffer.set(sb);
+        } else {
+            sb.setLength(0);
+        }
 
         // Timestamp
         addTimestamp(sb, record.getMillis());
@@ -122,12 +146,15 @@ public class OneLineFormatter extends Formatter {
         // Thread
         sb.append(' ');
         sb.append('[');
-        if (Thread.currentThread() instanceof AsyncFileHandler.LoggerThread) {
+        Thread currentThread = Thread.currentThread();
+        if (!(currentThread instanceof AsyncFileHandler.LoggerThread)
+                || record.getThreadID() == (int) currentThread.getId()) {
+            // The record was logged by the current thread
+            sb.append(currentThread.getName());
+        } else {
             // If using the async handler can't get the thread name from the
             // current thread.
             sb.append(getThreadName(record.getThreadID()));
-        } else {
-            sb.append(Thread.currentThread().getName());
         }
         sb.append(']');
 
@@ -139,18 +166,14 @@ public class OneLineFormatter extends Formatter {
 
         // Message
         sb.append(' ');
-        sb.append(formatMessage(record));
+        sb.append(message);
 
         // New line for next record
         sb.append(LINE_SEP);
 
         // Stack trace
-        if (record.getThrown() != null) {
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new IndentingPrintWriter(sw);
-            record.getThrown().printStackTrace(pw);
-            pw.close();
-            sb.append(sw.getBuffer());
+        if (stackTrace != null) {
+            sb.append(stackTrace);
         }
 
         return sb.toString();
@@ -182,12 +205,7 @@ public class OneLineFormatter extends Formatter {
      * int in LogRecord for a long value and the resulting mess that follows.
      */
     private static String getThreadName(int logRecordThreadId) {
-        Map<Integer,String> cache = threadNameCache.get();
-        String result = null;
-
-        if (logRecordThreadId > (Integer.MAX_VALUE / 2)) {
-            result = cache.get(Integer.valueOf(logRecordThreadId));
-        }
+        String result = threadNameCache.get(logRecordThreadId);
 
         if (result != null) {
             return result;
@@ -196,41 +214,66 @@ public class OneLineFormatter extends Formatter {
         if (logRecordThreadId > Integer.MAX_VALUE / 2) {
             result = UNKNOWN_THREAD_NAME + logRecordThreadId;
         } else {
-            // Double checked locking OK as threadMxBean is volatile
-            if (threadMxBean == null) {
-                synchronized (threadMxBeanLock) {
-                    if (threadMxBean == null) {
-                        threadMxBean = ManagementFactory.getThreadMXBean();
-                    }
-                }
-            }
             ThreadInfo threadInfo =
-                    threadMxBean.getThreadInfo(logRecordThreadId);
+                    ThreadMXBeanHolder.threadMxBean.getThreadInfo(logRecordThreadId);
             if (threadInfo == null) {
                 return Long.toString(logRecordThreadId);
             }
             result = threadInfo.getThreadName();
         }
 
-        cache.put(Integer.valueOf(logRecordThreadId), result);
+        threadNameCache.put(logRecordThreadId, result);
 
         return result;
     }
 
 
-    private static class ThreadNameCache extends LinkedHashMap<Integer,String> {
+    /*
+     * Lazily initialised by the class loader so no locking is required.
+     */
+    private static class ThreadMXBeanHolder {
+        private static final ThreadMXBean threadMxBean = ManagementFactory.getThreadMXBean();
+    }
 
-        private static final long serialVersionUID = 1L;
 
-        private final int cacheSize;
+    /*
+     * Direct mapped cache of thread names. Each slot holds an immutable entry
+     * so entries can be read and replaced by any thread without locking. A
+     * colliding thread ID simply evicts the previous entry, which bounds the
+     * cache to a fixed size.
+     */
+    private static class ThreadNameCache {
+
+        private final Entry[] entries;
+        private final int mask;
 
         public ThreadNameCache(int cacheSize) {
-            this.cacheSize = cacheSize;
+            // Round up to a power of two so the slot is a simple mask
+            int size = Integer.highestOneBit(cacheSize - 1) << 1;
+            entries = new Entry[size];
+            mask = size - 1;
         }
 
-        @Override
-        protected boolean removeEldestEntry(Entry<Integer, String> eldest) {
-            return (size() > cacheSize);
+        public String get(int threadId) {
+            Entry entry = entries[threadId & mask];
+            if (entry != null && entry.threadId == threadId) {
+                return entry.threadName;
+            }
+            return null;
+        }
+
+        public void put(int threadId, String threadName) {
+            entries[threadId & mask] = new Entry(threadId, threadName);
+        }
+
+        private static class Entry {
+            private final int threadId;
+            private final String threadName;
+
+            public Entry(int threadId, String threadName) {
+                this.threadId = threadId;
+                this.threadName = threadName;
+            }
         }
     }
 
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package javax.el;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestUtil {
+
+    @Test
+    public void testFindMethodRepeated() throws Exception {
+        Method expected = String.class.getMethod("indexOf", String.class);
+        Class<?>[] types = new Class<?>[] { String.class };
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(expected, Util.findMethod(String.class,
+                    "indexOf", types, new Object[] { "a" }));
+        }
+    }
+
+
+    @Test
+    public void testFindMethodCallerArrayNotShared() throws Exception {
+        Class<?>[] types = new Class<?>[] { String.class };
+        Util.findMethod(String.class, "indexOf", types, new Object[] { "a" });
+        // Changing the array of the first caller must not affect later ones
+        types[0] = int.class;
+        Assert.assertEquals(String.class.getMethod("indexOf", String.class),
+                Util.findMethod(String.class, "indexOf",
+                        new Class<?>[] { String.class }, new Object[] { "a" }));
+    }
+
+
+    @Test
+    public void testFindMethodNotFoundRepeated() {
+        String message = null;
+        for (int i = 0; i < 3; i++) {
+            try {
+                Util.findMethod(String.class, "noSuchMethod",
+                        new Class<?>[] { String.class }, new Object[] { "a" });
+                Assert.fail();
+            } catch (MethodNotFoundException e) {
+                if (message == null) {
+                    message = e.getMessage();
+                } else {
+                    Assert.assertEquals(message, e.getMessage());
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void testFindMethodDependsOnValues() throws Exception {
+        // The same parameter types, but whether the value can be coerced
+        // differs, so the first resolution must not be reused
+        Method expected = Overloads.class.getMethod("m", long.class);
+        Assert.assertEquals(expected, Util.findMethod(Overloads.class, "m",
+                null, new Object[] { "5" }));
+        try {
+            Util.findMethod(Overloads.class, "m", null, new Object[] { "five" });
+            Assert.fail();
+        } catch (MethodNotFoundException e) {
+            // Expected
+        }
+        Assert.assertEquals(expected, Util.findMethod(Overloads.class, "m",
+                null, new Object[] { "7" }));
+    }
+
+
+    @Test
+    public void testFindMethodAccessible() throws Exception {
+        // The method of a non-public class is found through a public type
+        Class<?> clazz = Collections.unmodifiableList(
+                new ArrayList<String>()).getClass();
+        Assert.assertFalse(Modifier.isPublic(clazz.getModifiers()));
+        for (int i = 0; i < 2; i++) {
+            Method m = Util.findMethod(clazz, "size", new Class<?>[0], null);
+            Assert.assertTrue(Modifier.isPublic(
+                    m.getDeclaringClass().getModifiers()));
+        }
+    }
+
+
+    @Test
+    public void testFindConstructorRepeated() throws Exception {
+        Constructor<?> expected = StringBuilder.class.getConstructor(String.class);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(expected, Util.findConstructor(StringBuilder.class,
+                    new Class<?>[] { String.class }, new Object[] { "a" }));
+        }
+    }
+
+
+    public static class Overloads {
+
+        public static String m(long value) {
+            return "long";
+        }
+
+        public static String m(Date value) {
+            return "date";
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestELParser {
+
+    @Test
+    public void testBooleanAndNull() {
+        Assert.assertEquals(Boolean.TRUE, ELParser.parseLiteral("true"));
+        Assert.assertEquals(Boolean.FALSE, ELParser.parseLiteral(" false "));
+        Assert.assertNull(ELParser.parseLiteral("null"));
+    }
+
+
+    @Test
+    public void testString() {
+        Assert.assertEquals("abc", ELParser.parseLiteral("'abc'"));
+        Assert.assertEquals("abc", ELParser.parseLiteral("\"abc\""));
+        Assert.assertEquals("", ELParser.parseLiteral("''"));
+        Assert.assertEquals("a'b\"c\\", ELParser.parseLiteral("'a\\'b\"c\\\\'"));
+    }
+
+
+    @Test
+    public void testStringNotALiteral() {
+        assertNotALiteral("'abc");
+        assertNotALiteral("'");
+        assertNotALiteral("'a' + 'b'");
+        assertNotALiteral("'a\\nb'");
+        assertNotALiteral("'a\\'");
+    }
+
+
+    @Test
+    public void testInteger() {
+        Assert.assertEquals(Long.valueOf(42), ELParser.parseLiteral("42"));
+        Assert.assertEquals(Long.valueOf(-42), ELParser.parseLiteral("-42"));
+        Assert.assertEquals(Long.valueOf(Long.MAX_VALUE),
+                ELParser.parseLiteral(Long.toString(Long.MAX_VALUE)));
+        // A BigInteger in EL
+        assertNotALiteral("99999999999999999999");
+    }
+
+
+    @Test
+    public void testFloatingPoint() {
+        Assert.assertEquals(Double.valueOf(1.5), ELParser.parseLiteral("1.5"));
+        Assert.assertEquals(Double.valueOf(1000), ELParser.parseLiteral("1e3"));
+        Assert.assertEquals(Double.valueOf(-0.25), ELParser.parseLiteral("-2.5E-1"));
+        // Infinite, which has no Java literal
+        assertNotALiteral("1e999");
+    }
+
+
+    @Test
+    public void testNotALiteral() {
+        assertNotALiteral("");
+        assertNotALiteral(" ");
+        assertNotALiteral("-");
+        assertNotALiteral("a");
+        assertNotALiteral("a.b");
+        assertNotALiteral("1-2");
+        assertNotALiteral("-true");
+        assertNotALiteral("fn:length('a')");
+    }
+
+
+    private static void assertNotALiteral(String expression) {
+        Assert.assertSame(expression, ELParser.NOT_A_LITERAL,
+                ELParser.parseLiteral(expression));
+    }
+}
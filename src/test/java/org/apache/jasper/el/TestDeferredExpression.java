@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.el;
+
+import javax.el.ExpressionFactory;
+import javax.el.ValueExpression;
+import javax.el.VariableMapper;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDeferredExpression {
+
+    private ExpressionFactory factory;
+    private ELContextImpl context;
+    private DeferredExpression value;
+    private DeferredExpression method;
+
+    @Before
+    public void setUp() {
+        factory = ExpressionFactory.newInstance();
+        context = new ELContextImpl();
+        value = new DeferredExpression("test", "${a.b}", Object.class);
+        method = new DeferredExpression("test", "#{a.b}", void.class,
+                new Class<?>[0]);
+    }
+
+
+    @Test
+    public void testShared() {
+        Assert.assertSame(value.getValueExpression(factory, context),
+                value.getValueExpression(factory, new ELContextImpl()));
+        Assert.assertSame(method.getMethodExpression(factory, context),
+                method.getMethodExpression(factory, new ELContextImpl()));
+    }
+
+
+    @Test
+    public void testNotSharedWithMappedVariables() {
+        ValueExpression shared = value.getValueExpression(factory, context);
+
+        context.getVariableMapper().setVariable("x",
+                factory.createValueExpression(context, "${y}", Object.class));
+        ValueExpression first = value.getValueExpression(factory, context);
+        ValueExpression second = value.getValueExpression(factory, context);
+        Assert.assertNotSame(shared, first);
+        Assert.assertNotSame(first, second);
+        Assert.assertNotSame(method.getMethodExpression(factory, context),
+                method.getMethodExpression(factory, context));
+    }
+
+
+    @Test
+    public void testSharedAfterVariableRestored() {
+        ValueExpression shared = value.getValueExpression(factory, context);
+
+        // As a tag file does for an attribute that was not mapped before
+        VariableMapper mapper = context.getVariableMapper();
+        mapper.setVariable("x",
+                factory.createValueExpression(context, "${y}", Object.class));
+        mapper.setVariable("x", null);
+        Assert.assertSame(shared, value.getValueExpression(factory, context));
+    }
+
+
+    @Test
+    public void testNotSharedWithOtherVariableMapper() {
+        context.setVariableMapper(new VariableMapper() {
+
+            @Override
+            public ValueExpression resolveVariable(String variable) {
+                return null;
+            }
+
+            @Override
+            public ValueExpression setVariable(String variable,
+                    ValueExpression expression) {
+                return null;
+            }
+        });
+        Assert.assertNotSame(value.getValueExpression(factory, context),
+                value.getValueExpression(factory, context));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.jsp.PageContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+
+public class TestJspContextWrapper {
+
+    private TesterJspServlet servlet;
+    private PageContext pageContext;
+
+    @Before
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        pageContext = servlet.getPageContext(new TesterRequest(), new TesterResponse());
+    }
+
+    @After
+    public void tearDown() {
+        servlet.releasePageContext(pageContext);
+    }
+
+
+    @Test
+    public void testPageScope() {
+        pageContext.setAttribute("outer", "page");
+        JspContextWrapper wrapper = newWrapper(null, null, null);
+
+        // The invoking page scope is not visible in the tag file
+        Assert.assertNull(wrapper.getAttribute("outer"));
+
+        wrapper.setAttribute("a", "1");
+        wrapper.setAttribute("b", "2", PageContext.PAGE_SCOPE);
+        wrapper.setAttribute("a", "3");
+        Assert.assertEquals("3", wrapper.getAttribute("a"));
+        Assert.assertEquals("2", wrapper.getAttribute("b", PageContext.PAGE_SCOPE));
+        Assert.assertEquals(PageContext.PAGE_SCOPE, wrapper.getAttributesScope("a"));
+        Assert.assertNull(pageContext.getAttribute("a"));
+
+        // Setting null removes
+        wrapper.setAttribute("a", null);
+        Assert.assertNull(wrapper.getAttribute("a"));
+        Assert.assertEquals("2", wrapper.getAttribute("b"));
+        wrapper.removeAttribute("b", PageContext.PAGE_SCOPE);
+        Assert.assertNull(wrapper.getAttribute("b"));
+        Assert.assertFalse(
+                wrapper.getAttributeNamesInScope(PageContext.PAGE_SCOPE).hasMoreElements());
+    }
+
+
+    @Test
+    public void testPageScopeGrowth() {
+        JspContextWrapper wrapper = newWrapper(null, null, null);
+        for (int i = 0; i < 20; i++) {
+            wrapper.setAttribute("a" + i, Integer.valueOf(i));
+        }
+        for (int i = 0; i < 20; i += 2) {
+            wrapper.removeAttribute("a" + i, PageContext.PAGE_SCOPE);
+        }
+
+        Set<String> names = new HashSet<String>(Collections.list(
+                wrapper.getAttributeNamesInScope(PageContext.PAGE_SCOPE)));
+        Assert.assertEquals(10, names.size());
+        for (int i = 0; i < 20; i++) {
+            if (i % 2 == 0) {
+                Assert.assertNull(wrapper.getAttribute("a" + i));
+            } else {
+                Assert.assertTrue(names.contains("a" + i));
+                Assert.assertEquals(Integer.valueOf(i), wrapper.getAttribute("a" + i));
+            }
+        }
+    }
+
+
+    @Test
+    public void testOtherScopes() {
+        JspContextWrapper wrapper = newWrapper(null, null, null);
+        wrapper.setAttribute("r", "request", PageContext.REQUEST_SCOPE);
+        Assert.assertEquals("request",
+                pageContext.getAttribute("r", PageContext.REQUEST_SCOPE));
+        Assert.assertEquals("request", wrapper.findAttribute("r"));
+        Assert.assertEquals(PageContext.REQUEST_SCOPE, wrapper.getAttributesScope("r"));
+
+        // The page scope of the tag file comes first
+        wrapper.setAttribute("r", "page");
+        Assert.assertEquals("page", wrapper.findAttribute("r"));
+
+        wrapper.removeAttribute("r");
+        Assert.assertNull(wrapper.findAttribute("r"));
+        Assert.assertNull(pageContext.getAttribute("r", PageContext.REQUEST_SCOPE));
+    }
+
+
+    @Test
+    public void testNestedVariable() {
+        pageContext.setAttribute("v", "outer");
+        JspContextWrapper wrapper = newWrapper(new String[] { "v" }, null, null);
+
+        wrapper.setAttribute("v", "inner");
+        wrapper.syncBeforeInvoke();
+        Assert.assertEquals("inner", pageContext.getAttribute("v"));
+
+        wrapper.syncEndTagFile();
+        Assert.assertEquals("outer", pageContext.getAttribute("v"));
+    }
+
+
+    @Test
+    public void testAtBeginAndAtEndVariables() {
+        JspContextWrapper wrapper = new JspContextWrapper(pageContext, null,
+                new String[] { "b" }, new String[] { "e" },
+                Collections.singletonMap("e", "alias"));
+
+        wrapper.setAttribute("b", "begin");
+        wrapper.setAttribute("e", "end");
+        wrapper.syncBeforeInvoke();
+        Assert.assertEquals("begin", pageContext.getAttribute("b"));
+        Assert.assertNull(pageContext.getAttribute("alias"));
+
+        wrapper.setAttribute("b", null);
+        wrapper.syncEndTagFile();
+        Assert.assertNull(pageContext.getAttribute("b"));
+        Assert.assertEquals("end", pageContext.getAttribute("alias"));
+        Assert.assertNull(pageContext.getAttribute("e"));
+    }
+
+
+    private JspContextWrapper newWrapper(String[] nestedVars,
+            String[] atBeginVars, String[] atEndVars) {
+        return new JspContextWrapper(pageContext, nestedVars, atBeginVars,
+                atEndVars, null);
+    }
+}
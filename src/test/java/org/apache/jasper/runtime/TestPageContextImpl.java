@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.IOException;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.jsp.PageContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+
+public class TestPageContextImpl {
+
+    static {
+        // Read when PageContextImpl is initialised, which requires this test
+        // to run in its own JVM
+        System.setProperty(
+                "org.apache.jasper.runtime.PageContextImpl.CACHE_MISSING_ATTRIBUTES",
+                "true");
+    }
+
+    private TesterJspServlet servlet;
+    private TesterRequest request;
+    private PageContext pageContext;
+
+    @Before
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        request = new TesterRequest();
+        request.addRequestDispatcher("/included.jsp", new RequestDispatcher() {
+
+            @Override
+            public void include(ServletRequest req, ServletResponse resp) {
+                req.setAttribute("x", "included");
+            }
+
+            @Override
+            public void forward(ServletRequest req, ServletResponse resp) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        pageContext = servlet.getPageContext(request, new TesterResponse());
+    }
+
+    @After
+    public void tearDown() {
+        servlet.releasePageContext(pageContext);
+    }
+
+
+    @Test
+    public void testMissingAttributeSetThroughPageContext() {
+        Assert.assertNull(pageContext.findAttribute("x"));
+        pageContext.setAttribute("x", "request", PageContext.REQUEST_SCOPE);
+        Assert.assertEquals("request", pageContext.findAttribute("x"));
+        pageContext.removeAttribute("x", PageContext.REQUEST_SCOPE);
+        Assert.assertNull(pageContext.findAttribute("x"));
+    }
+
+
+    @Test
+    public void testMissingAttributeSetByInclude()
+            throws IOException, ServletException {
+        Assert.assertNull(pageContext.findAttribute("x"));
+        // As generated for <jsp:include page="/included.jsp"/>
+        pageContext.include("/included.jsp", false);
+        Assert.assertEquals("included", pageContext.findAttribute("x"));
+    }
+
+
+    @Test
+    public void testMissingAttributeAfterRelease() {
+        Assert.assertNull(pageContext.findAttribute("x"));
+        servlet.releasePageContext(pageContext);
+        request.setAttribute("x", "next");
+        pageContext = servlet.getPageContext(request, new TesterResponse());
+        Assert.assertEquals("next", pageContext.findAttribute("x"));
+    }
+}
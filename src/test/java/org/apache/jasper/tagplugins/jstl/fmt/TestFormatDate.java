@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.tagplugins.jstl.fmt;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.PageContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+
+public class TestFormatDate {
+
+    private static final Date EPOCH = new Date(0);
+
+    private TesterJspServlet servlet;
+    private PageContext pageContext;
+
+    @Before
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        // The request locale is en-US
+        pageContext = servlet.getPageContext(new TesterRequest(), new TesterResponse());
+    }
+
+    @After
+    public void tearDown() {
+        servlet.releasePageContext(pageContext);
+    }
+
+
+    @Test
+    public void testPattern() throws Exception {
+        Assert.assertEquals("1970-01-01 00:00", format("yyyy-MM-dd HH:mm", "UTC"));
+    }
+
+
+    @Test
+    public void testTimeZone() throws Exception {
+        Assert.assertEquals("1969-12-31 19:00", format("yyyy-MM-dd HH:mm", "America/New_York"));
+        // The cached formatter must not keep the previous time zone
+        Assert.assertEquals("1970-01-01 00:00", format("yyyy-MM-dd HH:mm", "UTC"));
+        Assert.assertEquals("1970-01-01 01:00",
+                format("yyyy-MM-dd HH:mm", TimeZone.getTimeZone("GMT+01:00")));
+    }
+
+
+    @Test
+    public void testStyles() throws Exception {
+        DateFormat expected = DateFormat.getDateTimeInstance(
+                DateFormat.SHORT, DateFormat.LONG, java.util.Locale.US);
+        expected.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Assert.assertEquals(expected.format(EPOCH), FormatDate.format(pageContext, EPOCH,
+                FormatDate.TYPE_BOTH, DateFormat.SHORT, DateFormat.LONG, null, "UTC"));
+    }
+
+
+    @Test
+    public void testEmptyPattern() throws Exception {
+        Assert.assertEquals(FormatDate.format(pageContext, EPOCH, FormatDate.TYPE_DATE,
+                        DateFormat.MEDIUM, DateFormat.MEDIUM, null, "UTC"),
+                FormatDate.format(pageContext, EPOCH, FormatDate.TYPE_DATE,
+                        DateFormat.MEDIUM, DateFormat.MEDIUM, "", "UTC"));
+    }
+
+
+    @Test
+    public void testNoValue() throws Exception {
+        Assert.assertNull(FormatDate.format(pageContext, null, FormatDate.TYPE_DATE,
+                DateFormat.DEFAULT, DateFormat.DEFAULT, null, null));
+    }
+
+
+    @Test(expected = JspException.class)
+    public void testInvalidTimeZone() throws Exception {
+        format("yyyy", Integer.valueOf(0));
+    }
+
+
+    private String format(String pattern, Object timeZone) throws JspException {
+        return FormatDate.format(pageContext, EPOCH, FormatDate.TYPE_DATE,
+                DateFormat.DEFAULT, DateFormat.DEFAULT, pattern, timeZone);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.tagplugins.jstl.fmt;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.PageContext;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.tomcat.unittest.TesterJspServlet;
+import org.apache.tomcat.unittest.TesterRequest;
+import org.apache.tomcat.unittest.TesterResponse;
+
+public class TestFormatNumber {
+
+    private TesterJspServlet servlet;
+    private PageContext pageContext;
+
+    @Before
+    public void setUp() {
+        servlet = new TesterJspServlet();
+        // The request locale is en-US
+        pageContext = servlet.getPageContext(new TesterRequest(), new TesterResponse());
+    }
+
+    @After
+    public void tearDown() {
+        servlet.releasePageContext(pageContext);
+    }
+
+
+    @Test
+    public void testNumber() throws Exception {
+        Assert.assertEquals("1,234.5",
+                FormatNumber.format(pageContext, "1234.5", FormatNumber.TYPE_NUMBER, null));
+        Assert.assertEquals("1,234",
+                FormatNumber.format(pageContext, Long.valueOf(1234), FormatNumber.TYPE_NUMBER, null));
+    }
+
+
+    @Test
+    public void testPercent() throws Exception {
+        Assert.assertEquals("25%",
+                FormatNumber.format(pageContext, Double.valueOf(0.25), FormatNumber.TYPE_PERCENT, null));
+    }
+
+
+    @Test
+    public void testPattern() throws Exception {
+        Assert.assertEquals("1,234.00",
+                FormatNumber.format(pageContext, Integer.valueOf(1234), FormatNumber.TYPE_PERCENT, "#,##0.00"));
+        // Cached formatters must not be shared between patterns
+        Assert.assertEquals("1234.0",
+                FormatNumber.format(pageContext, Integer.valueOf(1234), FormatNumber.TYPE_PERCENT, "0.0"));
+    }
+
+
+    @Test
+    public void testEmptyPattern() throws Exception {
+        Assert.assertEquals(
+                FormatNumber.format(pageContext, Double.valueOf(0.25), FormatNumber.TYPE_PERCENT, null),
+                FormatNumber.format(pageContext, Double.valueOf(0.25), FormatNumber.TYPE_PERCENT, ""));
+    }
+
+
+    @Test
+    public void testNoValue() throws Exception {
+        Assert.assertNull(FormatNumber.format(pageContext, null, FormatNumber.TYPE_NUMBER, null));
+        Assert.assertNull(FormatNumber.format(pageContext, "", FormatNumber.TYPE_NUMBER, null));
+    }
+
+
+    @Test(expected = JspException.class)
+    public void testInvalidValue() throws Exception {
+        FormatNumber.format(pageContext, "one", FormatNumber.TYPE_NUMBER, null);
+    }
+}
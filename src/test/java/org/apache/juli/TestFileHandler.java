@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.juli;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFileHandler {
+
+    private static final String PREFIX = "test.";
+    private static final String SUFFIX = ".log";
+    private static final String CURRENT = PREFIX + SUFFIX.substring(1);
+
+    // Deliberately relative, as the default "logs" directory is
+    private static final String DIRECTORY = "output/tmp/testFileHandler";
+
+    private File logsDir;
+    private FileHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        logsDir = new File(DIRECTORY);
+        delete(logsDir);
+        if (!logsDir.mkdirs() && !logsDir.isDirectory()) {
+            Assert.fail("Unable to create [" + logsDir + "]");
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (handler != null) {
+            handler.close();
+        }
+        LogManager.getLogManager().readConfiguration();
+        delete(logsDir);
+    }
+
+
+    @Test
+    public void testRotateBySize() throws Exception {
+        configure("maxFileSize", "100");
+        handler = new FileHandler(DIRECTORY, PREFIX, SUFFIX);
+
+        for (int i = 0; i < 10; i++) {
+            handler.publish(new LogRecord(Level.INFO, "0123456789012345678901234567890123456789"));
+        }
+
+        Assert.assertTrue(new File(logsDir, CURRENT + ".1").isFile());
+        Assert.assertTrue(new File(logsDir, CURRENT + ".2").isFile());
+        Assert.assertTrue(new File(logsDir, CURRENT).length() < 200);
+    }
+
+
+    @Test
+    public void testMaxFiles() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            generateLogFile(CURRENT + "." + i, 10, i);
+        }
+        configure("maxFiles", "2");
+        handler = new FileHandler(DIRECTORY, PREFIX, SUFFIX);
+
+        waitForFileCount(3);
+        Assert.assertTrue(new File(logsDir, CURRENT + ".4").isFile());
+        Assert.assertTrue(new File(logsDir, CURRENT + ".5").isFile());
+        Assert.assertTrue(new File(logsDir, CURRENT).isFile());
+    }
+
+
+    @Test
+    public void testMaxTotalSizeKeepsCurrentFile() throws Exception {
+        // The open file is the oldest and on its own exceeds the limit
+        generateLogFile(CURRENT, 500, 0);
+        for (int i = 1; i <= 3; i++) {
+            generateLogFile(CURRENT + "." + i, 100, i);
+        }
+        configure("maxTotalSize", "250");
+        handler = new FileHandler(DIRECTORY, PREFIX, SUFFIX);
+
+        waitForFileCount(1);
+        Assert.assertEquals(500, new File(logsDir, CURRENT).length());
+    }
+
+
+    private void configure(String name, String value) throws IOException {
+        Properties props = new Properties();
+        props.setProperty(FileHandler.class.getName() + ".rotatable", "false");
+        props.setProperty(FileHandler.class.getName() + "." + name, value);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        props.store(out, null);
+        LogManager.getLogManager().readConfiguration(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+
+    private void generateLogFile(String name, int length, int age) throws IOException {
+        File file = new File(logsDir, name);
+        try (OutputStream os = new FileOutputStream(file)) {
+            os.write(new byte[length]);
+        }
+        // Older files have lower indexes
+        file.setLastModified(System.currentTimeMillis() - (10 - age) * 60 * 1000L);
+    }
+
+
+    private void waitForFileCount(int expected) throws InterruptedException {
+        // Files are deleted on a background thread
+        int count = 0;
+        while (logsDir.list().length != expected && count < 100) {
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertEquals(expected, logsDir.list().length);
+    }
+
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.unittest;
+
+import org.apache.tomcat.InstanceManager;
+
+/**
+ * Creates instances with their no-argument constructor, without any
+ * injection or lifecycle callbacks.
+ */
+public class TesterInstanceManager implements InstanceManager {
+
+    @Override
+    public Object newInstance(Class<?> clazz) throws IllegalAccessException,
+            InstantiationException {
+        return clazz.newInstance();
+    }
+
+    @Override
+    public Object newInstance(String className) throws IllegalAccessException,
+            InstantiationException, ClassNotFoundException {
+        return newInstance(Class.forName(className));
+    }
+
+    @Override
+    public Object newInstance(String fqcn, ClassLoader classLoader)
+            throws IllegalAccessException, InstantiationException,
+            ClassNotFoundException {
+        return newInstance(classLoader.loadClass(fqcn));
+    }
+
+    @Override
+    public void newInstance(Object o) {
+        // NO-OP
+    }
+
+    @Override
+    public void destroyInstance(Object o) {
+        // NO-OP
+    }
+}
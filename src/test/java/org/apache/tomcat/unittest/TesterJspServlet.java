@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.unittest;
+
+import java.util.Collections;
+import java.util.Enumeration;
+
+import javax.servlet.GenericServlet;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.jsp.JspFactory;
+import javax.servlet.jsp.JspWriter;
+import javax.servlet.jsp.PageContext;
+
+import org.apache.jasper.runtime.JspFactoryImpl;
+
+/**
+ * Stands in for a compiled JSP page. It obtains and releases page contexts
+ * the way generated code does, within its own {@link TesterServletContext}.
+ */
+public class TesterJspServlet extends GenericServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    static {
+        // Normally done by the JspRuntimeContext
+        if (JspFactory.getDefaultFactory() == null) {
+            JspFactory.setDefaultFactory(new JspFactoryImpl());
+        }
+    }
+
+    private final JspFactory factory = JspFactory.getDefaultFactory();
+
+    public TesterJspServlet() {
+        final ServletContext servletContext = new TesterServletContext();
+        try {
+            init(new ServletConfig() {
+
+                @Override
+                public String getServletName() {
+                    return "jsp";
+                }
+
+                @Override
+                public ServletContext getServletContext() {
+                    return servletContext;
+                }
+
+                @Override
+                public String getInitParameter(String name) {
+                    return null;
+                }
+
+                @Override
+                public Enumeration<String> getInitParameterNames() {
+                    return Collections.emptyEnumeration();
+                }
+            });
+        } catch (ServletException e) {
+            // GenericServlet.init() does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    public JspFactory getJspFactory() {
+        return factory;
+    }
+
+
+    public PageContext getPageContext(ServletRequest request, ServletResponse response) {
+        return factory.getPageContext(this, request, response, null, false,
+                JspWriter.DEFAULT_BUFFER, true);
+    }
+
+
+    public void releasePageContext(PageContext pageContext) {
+        factory.releasePageContext(pageContext);
+    }
+
+
+    @Override
+    public void service(ServletRequest request, ServletResponse response) {
+        // NO-OP
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.unittest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Locale;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal {@link HttpServletResponse} whose writer discards everything
+ * written to it.
+ */
+public class TesterResponse implements HttpServletResponse {
+
+    private final PrintWriter writer = new PrintWriter(new Writer() {
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            // Discard
+        }
+
+        @Override
+        public void flush() {
+            // NO-OP
+        }
+
+        @Override
+        public void close() {
+            // NO-OP
+        }
+    });
+
+
+    @Override
+    public String getCharacterEncoding() {
+        return "ISO-8859-1";
+    }
+
+    @Override
+    public void setCharacterEncoding(String arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return Locale.US;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        return null;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public void setContentType(String arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public void setBufferSize(int arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public int getBufferSize() {
+        return 0;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        // NO-OP
+    }
+
+    @Override
+    public void resetBuffer() {
+        // NO-OP
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        // NO-OP
+    }
+
+    @Override
+    public void setLocale(Locale arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public void addCookie(Cookie arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public boolean containsHeader(String arg0) {
+        return false;
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    @Override
+    public void sendError(int arg0, String arg1) throws IOException {
+        // NO-OP
+    }
+
+    @Override
+    public void sendError(int arg0) throws IOException {
+        // NO-OP
+    }
+
+    @Override
+    public void sendRedirect(String arg0) throws IOException {
+        // NO-OP
+    }
+
+    @Override
+    public void setDateHeader(String arg0, long arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public void addDateHeader(String arg0, long arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public void setHeader(String arg0, String arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public void addHeader(String arg0, String arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public void setIntHeader(String arg0, int arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public void addIntHeader(String arg0, int arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public void setStatus(int arg0) {
+        // NO-OP
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int arg0, String arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public int getStatus() {
+        return HttpServletResponse.SC_OK;
+    }
+
+    @Override
+    public String getHeader(String arg0) {
+        return null;
+    }
+
+    @Override
+    public Collection<String> getHeaders(String arg0) {
+        return null;
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return null;
+    }
+}
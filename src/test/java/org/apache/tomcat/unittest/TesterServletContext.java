@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.unittest;
+
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.EventListener;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterRegistration;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.Servlet;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRegistration;
+import javax.servlet.SessionCookieConfig;
+import javax.servlet.SessionTrackingMode;
+import javax.servlet.descriptor.JspConfigDescriptor;
+
+/**
+ * Minimal {@link ServletContext} that supports attributes and little else.
+ */
+public class TesterServletContext implements ServletContext {
+
+    private final Map<String,Object> attributes = new ConcurrentHashMap<String,Object>();
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public ServletContext getContext(String arg0) {
+        return null;
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 3;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public int getEffectiveMajorVersion() {
+        return 3;
+    }
+
+    @Override
+    public int getEffectiveMinorVersion() {
+        return 0;
+    }
+
+    @Override
+    public String getMimeType(String arg0) {
+        return null;
+    }
+
+    @Override
+    public Set<String> getResourcePaths(String arg0) {
+        return null;
+    }
+
+    @Override
+    public URL getResource(String arg0) throws MalformedURLException {
+        return null;
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String arg0) {
+        return null;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String arg0) {
+        return null;
+    }
+
+    @Override
+    public RequestDispatcher getNamedDispatcher(String arg0) {
+        return null;
+    }
+
+    @Override
+    public Servlet getServlet(String arg0) throws ServletException {
+        return null;
+    }
+
+    @Override
+    public Enumeration<Servlet> getServlets() {
+        return null;
+    }
+
+    @Override
+    public Enumeration<String> getServletNames() {
+        return null;
+    }
+
+    @Override
+    public void log(String arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public void log(Exception arg0, String arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public void log(String arg0, Throwable arg1) {
+        // NO-OP
+    }
+
+    @Override
+    public String getRealPath(String arg0) {
+        return null;
+    }
+
+    @Override
+    public String getServerInfo() {
+        return null;
+    }
+
+    @Override
+    public String getInitParameter(String arg0) {
+        return null;
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+        return Collections.emptyEnumeration();
+    }
+
+    @Override
+    public boolean setInitParameter(String arg0, String arg1) {
+        return false;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(attributes.keySet());
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getServletContextName() {
+        return null;
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String arg0, String arg1) {
+        return null;
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String arg0, Servlet arg1) {
+        return null;
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String arg0, Class<? extends Servlet> arg1) {
+        return null;
+    }
+
+    @Override
+    public <T extends Servlet> T createServlet(Class<T> arg0) throws ServletException {
+        return null;
+    }
+
+    @Override
+    public ServletRegistration getServletRegistration(String arg0) {
+        return null;
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String arg0, String arg1) {
+        return null;
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String arg0, Filter arg1) {
+        return null;
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String arg0, Class<? extends Filter> arg1) {
+        return null;
+    }
+
+    @Override
+    public <T extends Filter> T createFilter(Class<T> arg0) throws ServletException {
+        return null;
+    }
+
+    @Override
+    public FilterRegistration getFilterRegistration(String arg0) {
+        return null;
+    }
+
+    @Override
+    public SessionCookieConfig getSessionCookieConfig() {
+        return null;
+    }
+
+    @Override
+    public void setSessionTrackingModes(Set<SessionTrackingMode> arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public Set<SessionTrackingMode> getDefaultSessionTrackingModes() {
+        return null;
+    }
+
+    @Override
+    public Set<SessionTrackingMode> getEffectiveSessionTrackingModes() {
+        return null;
+    }
+
+    @Override
+    public void addListener(String arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public void addListener(Class<? extends EventListener> arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public <T extends EventListener> T createListener(Class<T> arg0) throws ServletException {
+        return null;
+    }
+
+    @Override
+    public JspConfigDescriptor getJspConfigDescriptor() {
+        return null;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        return getClass().getClassLoader();
+    }
+
+    @Override
+    public void declareRoles(String... arg0) {
+        // NO-OP
+    }
+
+    @Override
+    public Map<String, ? extends ServletRegistration> getServletRegistrations() {
+        return null;
+    }
+
+    @Override
+    public Map<String, ? extends FilterRegistration> getFilterRegistrations() {
+        return null;
+    }
+
+    @Override
+    public <T extends EventListener> void addListener(T arg0) {
+        // NO-OP
+    }
+}